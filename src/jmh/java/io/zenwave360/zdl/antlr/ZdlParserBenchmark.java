@@ -0,0 +1,174 @@
+package io.zenwave360.zdl.antlr;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures each stage of {@link io.zenwave360.zdl.ZdlParser#parseModel(String)} separately, plus the whole pipeline.
+ * <p>
+ * Input is <code>src/test/resources/complete.zdl</code> repeated <code>scale</code> times, with declared names
+ * suffixed on each copy so the model grows with the source. Each stage works on the output of the previous one,
+ * prepared once per trial. The lexer and parser stages go through {@link ZdlRecognizers} as <code>parseModel</code>
+ * does, the parser one without the hidden tokens it never buffers. Only the stages after parsing depend on
+ * <code>locations</code>, see {@link ModelState}.
+ * <p>
+ * Run with <code>mvn -Pjmh test-compile exec:exec</code> (the GC profiler reports allocation rates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZdlParserBenchmark {
+
+    static final String COMPLETE_ZDL = "src/test/resources/complete.zdl";
+
+    @Param({"1", "10", "100", "1000"})
+    int scale;
+
+    String source;
+    List<Token> visibleTokens;
+    ParseTree tree;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        source = scaledSource(Files.readString(Path.of(COMPLETE_ZDL)), scale);
+        visibleTokens = visibleTokens(lex());
+        tree = parse();
+        if (tree == null) {
+            throw new IllegalStateException("Syntax errors in the scaled source");
+        }
+    }
+
+    /**
+     * The model built from the parse tree, with and without locations.
+     */
+    @State(Scope.Benchmark)
+    public static class ModelState {
+
+        @Param({"true", "false"})
+        boolean locations;
+
+        ParseTree tree;
+        ZdlModel model;
+        ZdlModelValidator validator;
+
+        @Setup(Level.Trial)
+        public void setup(ZdlParserBenchmark benchmark) {
+            tree = benchmark.tree;
+            model = ZdlModelPostProcessor.postProcess(walk());
+            validator = new ZdlModelValidator()
+                    .withStandardFieldTypes(io.zenwave360.zdl.ZdlParser.STANDARD_FIELD_TYPES)
+                    .withExtraFieldTypes(List.of());
+        }
+
+        ZdlModel walk() {
+            var listener = new ZdlListenerImpl().withLocations(locations);
+            new ParseTreeWalker().walk(listener, tree);
+            return listener.getModel();
+        }
+    }
+
+    @Benchmark
+    public List<Token> lexer() {
+        return lex();
+    }
+
+    @Benchmark
+    public ParseTree parser() {
+        return parse();
+    }
+
+    @Benchmark
+    public ZdlModel listener(ModelState state) {
+        return state.walk();
+    }
+
+    @Benchmark
+    public ZdlModel postProcessor(ModelState state) {
+        return ZdlModelPostProcessor.postProcess(state.model);
+    }
+
+    @Benchmark
+    public ZdlModel validator(ModelState state) {
+        return state.validator.validate(state.model);
+    }
+
+    @Benchmark
+    public ZdlModel parseModel(ModelState state) throws IOException {
+        return new io.zenwave360.zdl.ZdlParser().withLocations(state.locations).parseModel(source);
+    }
+
+    private List<Token> lex() {
+        return ZdlRecognizers.tokenize(CharStreams.fromString(source));
+    }
+
+    private ParseTree parse() {
+        return ZdlRecognizers.parseTokens(visibleTokens);
+    }
+
+    /**
+     * Drops hidden tokens as {@link ZdlRecognizers#parse} does while lexing.
+     */
+    private static List<Token> visibleTokens(List<Token> tokens) {
+        var source = new ZdlRecognizers.HiddenTokenFilter(new ListTokenSource(tokens));
+        var visible = new ArrayList<Token>();
+        for (var token = source.nextToken(); ; token = source.nextToken()) {
+            visible.add(token);
+            if (token.getType() == Token.EOF) {
+                return visible;
+            }
+        }
+    }
+
+    /**
+     * Repeats the given source <code>scale</code> times, renaming every declared entity, enum, input, output, event,
+     * aggregate and service (and their references) with a numeric suffix on each copy.
+     */
+    static String scaledSource(String source, int scale) throws IOException {
+        var model = new io.zenwave360.zdl.ZdlParser().withLocations(false).parseModel(source);
+        Set<String> names = new LinkedHashSet<>();
+        for (var collection : List.of("entities", "enums", "inputs", "outputs", "events", "aggregates", "services")) {
+            var declarations = (Map<String, Object>) model.get(collection);
+            if (declarations != null) {
+                names.addAll(declarations.keySet());
+            }
+        }
+        var namesPattern = Pattern.compile("\\b(" + String.join("|", names) + ")\\b");
+        var copies = new ArrayList<String>(scale);
+        copies.add(source);
+        for (int copy = 1; copy < scale; copy++) {
+            var suffix = String.valueOf(copy);
+            copies.add(namesPattern.matcher(source).replaceAll(match -> Matcher.quoteReplacement(match.group(1) + suffix)));
+        }
+        return String.join("\n", copies);
+    }
+}
@@ -0,0 +1,53 @@
+package io.zenwave360.zdl.antlr;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link io.zenwave360.zdl.ZdlParser#parseModel(String)} scales with the number of top level declarations,
+ * over models generated with {@link ZdlSourceGenerator#ofDeclarations(int)}, sequentially and in parallel.
+ * <p>
+ * Large models take seconds per parse, so each iteration is a single parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ZdlParserScalingBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    int declarations;
+
+    @Param({"true", "false"})
+    boolean locations;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    String source;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = ZdlSourceGenerator.ofDeclarations(declarations).generate();
+    }
+
+    @Benchmark
+    public ZdlModel parseModel() throws IOException {
+        return new io.zenwave360.zdl.ZdlParser().withLocations(locations).withParallelParsing(parallel).parseModel(source);
+    }
+}
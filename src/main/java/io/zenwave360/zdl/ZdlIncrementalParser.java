@@ -0,0 +1,626 @@
+package io.zenwave360.zdl;
+
+import io.zenwave360.zdl.antlr.ZdlModel;
+import io.zenwave360.zdl.antlr.ZdlModelMerger;
+import io.zenwave360.zdl.antlr.ZdlModelPostProcessor;
+import io.zenwave360.zdl.antlr.ZdlRecognizers;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the model of a source being edited up to date, re-parsing only the top level declarations (entities, enums,
+ * services, aggregates...) touched by each edit, for editor integrations that need a model after every keystroke.
+ * <p>
+ * The source is split in chunks, one per top level declaration (with the comments and whitespace before it), each one
+ * with the model parsed from it. An edit re-lexes and re-parses the chunks it overlaps, and their declarations replace
+ * the ones of the chunks they replace in the model merged from all chunks (see {@link ZdlModelMerger}). Post processing
+ * and validation are repeated only for the new chunks and for the chunks referencing a name the edit declared or
+ * removed, each chunk being validated on its own against the names declared in the whole model, and merged locations
+ * are only built when read. The result is the same model {@link ZdlParser#parseModel(String)} returns for the edited
+ * source.
+ * <p>
+ * Edits that add or remove sections other than the ones every model has (like <code>plugins</code>) merge the whole
+ * model again, and sources declaring a name more than once are validated as a whole, as only the last declaration of
+ * each name is in the model.
+ * <p>
+ * Chunks that don't parse on their own are parsed recovering from syntax errors, as a full parse does, and are kept
+ * (see {@link #hasSyntaxErrors()}) until an edit fixes them; the rest of the source is still re-parsed edit by edit.
+ * Edits that leave the source without syntax errors while some chunks are broken parse the whole source again, as
+ * recovering may have split declarations in chunks the edit doesn't touch.
+ * While some chunks are broken the model has what could be recovered from them, which may differ from what a full
+ * parse recovers, and syntax errors are not reported: parse the source with {@link ZdlParser} for that.
+ * <p>
+ * The model returned is updated in place by later edits, so it should be read before editing the source again.
+ * Instances are not thread safe.
+ */
+public class ZdlIncrementalParser {
+
+    private static final Set<String> MODEL_SECTIONS = Set.copyOf(new ZdlModel().keySet());
+    private static final List<String> SYMBOL_SECTIONS = List.of("entities", "enums", "inputs", "outputs", "events", "aggregates");
+    // in the order ZdlModelValidator reports them
+    private static final List<String> PROBLEM_SECTIONS = List.of("apis", "entities", "inputs", "outputs", "events", "aggregates", "services", "relationships");
+
+    private final ZdlParser parser;
+    private String text = "";
+    private List<Chunk> chunks = List.of();
+    private ZdlModel model;
+    private int declarationCount;
+
+    public ZdlIncrementalParser() {
+        this(new ZdlParser());
+    }
+
+    /**
+     * Uses the given parser settings (field types, locations) for all parses.
+     */
+    public ZdlIncrementalParser(ZdlParser parser) {
+        this.parser = parser;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public ZdlModel getModel() {
+        return model;
+    }
+
+    /**
+     * Whether some top level declarations have syntax errors, in which case the model has what could be recovered from
+     * them.
+     */
+    public boolean hasSyntaxErrors() {
+        return chunks.stream().anyMatch(chunk -> chunk.broken);
+    }
+
+    /**
+     * Parses the whole source, replacing any previous one.
+     */
+    public ZdlModel parseModel(String text) throws IOException {
+        var chunks = parseChunks(text, 0, Position.START, false);
+        this.text = text;
+        this.chunks = chunks != null ? chunks : parseChunks(text, 0, Position.START, true);
+        rebuild();
+        return model;
+    }
+
+    /**
+     * Replaces the text between the given chars (from <code>start</code> inclusive to <code>end</code> exclusive, as
+     * in {@link String#substring(int, int)}) and returns the updated model.
+     */
+    public ZdlModel applyEdit(int start, int end, String replacement) throws IOException {
+        Objects.checkFromToIndex(start, end, text.length());
+        var edited = text.substring(0, start) + replacement + text.substring(end);
+
+        int first = 0;
+        while (first < chunks.size() - 1 && chunks.get(first).end < start) {
+            first++;
+        }
+        int last = chunks.size() - 1;
+        while (last > first && chunks.get(last).start > end) {
+            last--;
+        }
+        int delta = replacement.length() - (end - start);
+
+        var reparsed = reparse(edited, first, last, delta, false);
+        if (reparsed == null) {
+            // the edit may close a comment or a block opened in a broken chunk, or the other way round
+            int from = first - 1;
+            while (from >= 0 && !chunks.get(from).broken) {
+                from--;
+            }
+            int to = last + 1;
+            while (to < chunks.size() && !chunks.get(to).broken) {
+                to++;
+            }
+            if (from >= 0 || to < chunks.size()) {
+                from = from >= 0 ? from : first;
+                to = to < chunks.size() ? to : last;
+                reparsed = reparse(edited, from, to, delta, false);
+                if (reparsed != null) {
+                    first = from;
+                    last = to;
+                }
+            }
+        }
+        if ((reparsed == null || isBrokenOutside(first, last)) && hasSyntaxErrors()) {
+            // the edit may fix syntax errors the recovered parse split in chunks it doesn't span, like an unterminated
+            // string or comment: parse the whole source again if it has none left
+            var all = parseChunks(edited, 0, Position.START, false);
+            if (all != null) {
+                text = edited;
+                chunks = all;
+                rebuild();
+                return model;
+            }
+        }
+        if (reparsed == null) {
+            reparsed = reparse(edited, first, last, delta, true);
+        }
+
+        var removed = List.copyOf(chunks.subList(first, last + 1));
+        var following = chunks.subList(last + 1, chunks.size());
+        if (!following.isEmpty()) {
+            var lastReparsed = reparsed.get(reparsed.size() - 1);
+            var cursor = new Cursor(edited.substring(lastReparsed.start, lastReparsed.end));
+            cursor.advanceToEnd();
+            var oldEnd = following.get(0).position;
+            var newEnd = cursor.position(lastReparsed.position);
+            for (var chunk : following) {
+                chunk.start += delta;
+                chunk.end += delta;
+                chunk.position = chunk.position.moved(oldEnd, newEnd);
+            }
+        }
+        var updated = new ArrayList<Chunk>(chunks.size() - removed.size() + reparsed.size());
+        updated.addAll(chunks.subList(0, first));
+        updated.addAll(reparsed);
+        updated.addAll(following);
+        text = edited;
+        chunks = updated;
+        splice(removed, reparsed);
+        return model;
+    }
+
+    /**
+     * Replaces the text between the given positions, with 1 based lines and 0 based columns counting chars, as
+     * editors usually report them.
+     */
+    public ZdlModel applyEdit(int startLine, int startColumn, int endLine, int endColumn, String replacement) throws IOException {
+        return applyEdit(offset(startLine, startColumn), offset(endLine, endColumn), replacement);
+    }
+
+    private int offset(int line, int column) {
+        int offset = 0;
+        for (int currentLine = 1; currentLine < line; currentLine++) {
+            offset = text.indexOf('\n', offset) + 1;
+            if (offset == 0) {
+                throw new IndexOutOfBoundsException("line " + line + " is out of bounds");
+            }
+        }
+        return offset + column;
+    }
+
+    private boolean isBrokenOutside(int first, int last) {
+        for (int i = 0; i < chunks.size(); i++) {
+            if ((i < first || i > last) && chunks.get(i).broken) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the region of the edited source spanning the chunks from <code>first</code> to <code>last</code>.
+     */
+    private List<Chunk> reparse(String edited, int first, int last, int delta, boolean recover) {
+        int regionStart = chunks.get(first).start;
+        int regionEnd = chunks.get(last).end + delta;
+        return parseChunks(edited.substring(regionStart, regionEnd), regionStart, chunks.get(first).position, recover);
+    }
+
+    /**
+     * Parses a region of the source made of complete top level declarations into chunks, or returns <code>null</code>
+     * if it can't be parsed on its own.
+     * <p>
+     * When recovering, the region is always parsed, and each chunk is flagged as broken if it doesn't parse on its own.
+     */
+    private List<Chunk> parseChunks(String region, int regionStart, Position regionPosition, boolean recover) {
+        var tree = recover ? ZdlRecognizers.recoverFragment(CharStreams.fromString(region))
+                : ZdlRecognizers.parseFragment(CharStreams.fromString(region));
+        if (tree == null) {
+            return null;
+        }
+        if (!recover && regionStart > 0 && tree.legacy_constants().getChildCount() > 0) {
+            // legacy constants are only allowed at the start of the source
+            return null;
+        }
+
+        var chunks = new ArrayList<Chunk>();
+        var cursor = new Cursor(region);
+        int chunkStart = 0;
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            ParseTree declaration = tree.getChild(i);
+            if (declaration instanceof TerminalNode || declaration.getChildCount() == 0) {
+                continue; // EOF, empty legacy constants and, when recovering, tokens that are not part of any declaration
+            }
+            var chunkModel = parser.newListener().getModel();
+            try {
+                var listener = parser.newListener();
+                new ParseTreeWalker().walk(listener, declaration);
+                chunkModel = ZdlModelMerger.relativize(listener.getModel(), cursor.codePoint, cursor.line, cursor.column);
+            } catch (RuntimeException e) {
+                // declarations with syntax errors may be missing parts the listener expects
+            }
+            var position = cursor.position(regionPosition);
+            int stop = ((ParserRuleContext) declaration).getStop().getStopIndex() + 1;
+            cursor.advanceTo(stop);
+            chunks.add(new Chunk(regionStart + chunkStart, regionStart + cursor.offset, position, chunkModel));
+            chunkStart = cursor.offset;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new Chunk(regionStart, regionStart, regionPosition, parser.newListener().getModel()));
+        }
+        chunks.get(chunks.size() - 1).end = regionStart + region.length();
+        if (recover) {
+            for (var chunk : chunks) {
+                var chunkTree = ZdlRecognizers.parseFragment(CharStreams.fromString(region.substring(chunk.start - regionStart, chunk.end - regionStart)));
+                chunk.broken = chunkTree == null || (chunk.start > 0 && chunkTree.legacy_constants().getChildCount() > 0);
+            }
+            if (chunks.stream().noneMatch(chunk -> chunk.broken)) {
+                // every chunk parses on its own but not all together: keep them all broken until the region is edited
+                chunks.forEach(chunk -> chunk.broken = true);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Merges the models of all chunks into a new model, then post processes and validates it.
+     */
+    private void rebuild() {
+        model = parser.newListener().getModel();
+        declarationCount = 0;
+        for (var chunk : chunks) {
+            ZdlModelMerger.mergeWithoutLocations(model, chunk.model);
+            declarationCount += chunk.declarations;
+            chunk.validated = false;
+        }
+        postProcessAndValidate(chunks);
+    }
+
+    /**
+     * Replaces in the model the declarations of the removed chunks with the ones of the added chunks, then post
+     * processes and validates the chunks that may have changed.
+     */
+    private void splice(List<Chunk> removed, List<Chunk> added) {
+        if (!sameSections()) {
+            rebuild();
+            return;
+        }
+        var sections = new LinkedHashSet<String>();
+        for (var chunk : removed) {
+            sections.addAll(nonEmptySections(chunk.model));
+            declarationCount -= chunk.declarations;
+        }
+        for (var chunk : added) {
+            sections.addAll(nonEmptySections(chunk.model));
+            declarationCount += chunk.declarations;
+        }
+        List<ZdlModel> models = null;
+        for (var section : sections) {
+            if ("relationships".equals(section) || !(model.get(section) instanceof Map declarations)
+                    || !replaceDeclarations(declarations, section, removed, added)) {
+                models = models != null ? models : chunks.stream().map(chunk -> chunk.model).toList();
+                ZdlModelMerger.remerge(model, section, models);
+            }
+        }
+
+        var changed = new HashSet<String>();
+        var declaredBefore = new HashSet<String>();
+        var declaredAfter = new HashSet<String>();
+        removed.forEach(chunk -> declaredBefore.addAll(chunk.declared));
+        added.forEach(chunk -> declaredAfter.addAll(chunk.declared));
+        for (var symbol : declaredBefore) {
+            if (!declaredAfter.contains(symbol)) {
+                changed.add(symbol.substring(symbol.indexOf(':') + 1));
+            }
+        }
+        for (var symbol : declaredAfter) {
+            if (!declaredBefore.contains(symbol)) {
+                changed.add(symbol.substring(symbol.indexOf(':') + 1));
+            }
+        }
+        var affected = new ArrayList<Chunk>();
+        for (var chunk : chunks) {
+            if (!chunk.validated || !Collections.disjoint(chunk.referenced, changed)) {
+                affected.add(chunk);
+            }
+        }
+        postProcessAndValidate(affected);
+    }
+
+    /**
+     * Whether the model has the same sections, in the same order, as the model merged from the current chunks would.
+     */
+    private boolean sameSections() {
+        var expected = new ArrayList<String>();
+        for (var chunk : chunks) {
+            if (chunk.model.size() > MODEL_SECTIONS.size()) {
+                for (var section : chunk.model.keySet()) {
+                    if (!MODEL_SECTIONS.contains(section) && !expected.contains(section)) {
+                        expected.add(section);
+                    }
+                }
+            }
+        }
+        var actual = new ArrayList<String>();
+        for (var section : model.keySet()) {
+            if (!MODEL_SECTIONS.contains(section) && !"allEntitiesAndEnums".equals(section)) {
+                actual.add(section);
+            }
+        }
+        return expected.equals(actual);
+    }
+
+    private static List<String> nonEmptySections(ZdlModel chunkModel) {
+        var sections = new ArrayList<String>();
+        for (var section : chunkModel.entrySet()) {
+            var key = section.getKey();
+            var value = section.getValue();
+            if (!"locations".equals(key) && !"problems".equals(key) && value != null
+                    && !(value instanceof Map && ((Map) value).isEmpty()) && !(value instanceof List && ((List) value).isEmpty())) {
+                sections.add(key);
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Replaces in place the declarations of the removed chunks with the ones of the added chunks, if they declare the
+     * same names in the same order and none of the removed ones is overridden by a later declaration with the same name.
+     */
+    private static boolean replaceDeclarations(Map<String, Object> declarations, String section, List<Chunk> removed, List<Chunk> added) {
+        var removedNames = new ArrayList<String>();
+        for (var chunk : removed) {
+            if (chunk.model.get(section) instanceof Map<?, ?> chunkDeclarations) {
+                for (var declaration : chunkDeclarations.entrySet()) {
+                    if (declarations.get(declaration.getKey()) != declaration.getValue()) {
+                        return false;
+                    }
+                    removedNames.add((String) declaration.getKey());
+                }
+            }
+        }
+        var addedNames = new ArrayList<String>();
+        for (var chunk : added) {
+            if (chunk.model.get(section) instanceof Map<?, ?> chunkDeclarations) {
+                addedNames.addAll((Set<String>) chunkDeclarations.keySet());
+            } else if (chunk.model.get(section) != null) {
+                return false;
+            }
+        }
+        if (!removedNames.equals(addedNames)) {
+            return false;
+        }
+        for (var chunk : added) {
+            if (chunk.model.get(section) instanceof Map chunkDeclarations) {
+                declarations.putAll(chunkDeclarations);
+            }
+        }
+        return true;
+    }
+
+    private void postProcessAndValidate(List<Chunk> affected) {
+        var models = new ArrayList<ZdlModel>(chunks.size());
+        var starts = new ArrayList<int[]>(chunks.size());
+        for (var chunk : chunks) {
+            models.add(chunk.model);
+            starts.add(new int[] { chunk.position.codePoint, chunk.position.line, chunk.position.column });
+        }
+        ZdlModelMerger.mergeLocationsLazily(model, models, starts);
+
+        var affectedModels = affected.stream().map(chunk -> chunk.model).toList();
+        ZdlModelPostProcessor.postProcess(model, affectedModels);
+        try {
+            if (declarationCount(model) == declarationCount) {
+                parser.newValidator().validate(model, affectedModels);
+                affected.forEach(chunk -> chunk.validated = true);
+                collectProblems();
+            } else {
+                // names declared more than once: only the last declaration of each is in the model, validate it as a whole
+                chunks.forEach(chunk -> chunk.validated = false);
+                parser.newValidator().validate(model);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Collects the problems of all chunks in the order validating the whole model reports them: by section, then by
+     * declaration (relationships by type first).
+     */
+    private void collectProblems() {
+        var problems = (List<Object>) model.getProblems();
+        problems.clear();
+        var withProblems = chunks.stream().filter(chunk -> !chunk.problems.isEmpty()).toList();
+        if (withProblems.isEmpty()) {
+            return;
+        }
+        for (var section : PROBLEM_SECTIONS) {
+            if ("relationships".equals(section)) {
+                for (var type : ((Map<String, Object>) model.get("relationships")).keySet()) {
+                    for (var chunk : withProblems) {
+                        if (((Map<?, ?>) chunk.model.get("relationships")).get(type) instanceof Map<?, ?> relationships) {
+                            collectProblems(problems, chunk, section, relationships);
+                        }
+                    }
+                }
+            } else {
+                for (var chunk : withProblems) {
+                    collectProblems(problems, chunk, section, null);
+                }
+            }
+        }
+    }
+
+    private static void collectProblems(List<Object> problems, Chunk chunk, String section, Map<?, ?> relationships) {
+        for (var problem : chunk.problems) {
+            var path = (String) problem.get("path");
+            if (!path.startsWith(section + ".")) {
+                continue;
+            }
+            if (relationships != null) {
+                // relationships.<name>.from.entity
+                var name = path.substring(section.length() + 1, path.lastIndexOf('.', path.lastIndexOf('.') - 1));
+                if (!relationships.containsKey(name)) {
+                    continue;
+                }
+            }
+            var shifted = new LinkedHashMap<>(problem);
+            if (problem.get("location") instanceof int[] location) {
+                shifted.put("location", ZdlModelMerger.shifted(location, chunk.position.codePoint, chunk.position.line, chunk.position.column));
+            }
+            problems.add(shifted);
+        }
+    }
+
+    /**
+     * Number of named entries in the sections of a model, which is less in a merged model than in the chunks it was
+     * merged from when some name is declared more than once.
+     */
+    private static int declarationCount(ZdlModel model) {
+        int count = 0;
+        for (var section : model.entrySet()) {
+            var key = section.getKey();
+            if ("locations".equals(key) || "allEntitiesAndEnums".equals(key) || !(section.getValue() instanceof Map<?, ?> declarations)) {
+                continue;
+            }
+            if ("relationships".equals(key)) {
+                for (var relationships : declarations.values()) {
+                    count += relationships instanceof Map ? ((Map<?, ?>) relationships).size() : 0;
+                }
+            } else {
+                count += declarations.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A top level declaration with the text before it, and what other chunks depend on: the names it declares (as
+     * <code>section:name</code>) and every string value in it, as any of them may reference a declaration elsewhere.
+     */
+    private static class Chunk {
+        int start;
+        int end;
+        Position position;
+        final ZdlModel model;
+        final Set<String> declared = new HashSet<>();
+        final Set<String> referenced = new HashSet<>();
+        final int declarations;
+        final List<Map<String, Object>> problems;
+        boolean broken;
+        boolean validated;
+
+        Chunk(int start, int end, Position position, ZdlModel model) {
+            this.start = start;
+            this.end = end;
+            this.position = position;
+            this.model = model;
+            this.declarations = declarationCount(model);
+            this.problems = (List<Map<String, Object>>) model.getProblems();
+            for (var section : SYMBOL_SECTIONS) {
+                if (model.get(section) instanceof Map<?, ?> declarations) {
+                    for (var name : declarations.keySet()) {
+                        declared.add(section + ":" + name);
+                    }
+                }
+            }
+            for (var entity : ((Map<String, Object>) model.get("entities")).entrySet()) {
+                if (entity.getValue() instanceof Map<?, ?> declaration && declaration.get("options") instanceof Map<?, ?> options
+                        && Boolean.TRUE.equals(options.get("aggregate"))) {
+                    declared.add("aggregate:" + entity.getKey());
+                }
+            }
+            for (var section : model.entrySet()) {
+                if (!"locations".equals(section.getKey()) && !"problems".equals(section.getKey())) {
+                    collectStrings(section.getValue());
+                }
+            }
+        }
+
+        private void collectStrings(Object value) {
+            if (value instanceof String string) {
+                referenced.add(string);
+            } else if (value instanceof Map<?, ?> map) {
+                for (var entry : map.entrySet()) {
+                    if (!"javadoc".equals(entry.getKey())) {
+                        collectStrings(entry.getValue());
+                    }
+                }
+            } else if (value instanceof List<?> list) {
+                list.forEach(this::collectStrings);
+            }
+        }
+    }
+
+    /**
+     * Position in the whole source, as ANTLR counts it: code points, lines (1 based) and columns.
+     */
+    private record Position(int codePoint, int line, int column) {
+
+        static final Position START = new Position(0, 1, 0);
+
+        /**
+         * Where this position is after the text before it, ending at <code>from</code>, has been edited to end at
+         * <code>to</code>.
+         */
+        Position moved(Position from, Position to) {
+            return new Position(codePoint + to.codePoint - from.codePoint, line + to.line - from.line,
+                    line == from.line ? column + to.column - from.column : column);
+        }
+    }
+
+    /**
+     * Position in a text, both as a char offset and as ANTLR counts it: code points, lines and columns.
+     */
+    private static class Cursor {
+        final String text;
+        int offset;
+        int codePoint;
+        int line = 1;
+        int column;
+
+        Cursor(String text) {
+            this.text = text;
+        }
+
+        void advanceTo(int targetCodePoint) {
+            while (codePoint < targetCodePoint) {
+                advance();
+            }
+        }
+
+        void advanceToEnd() {
+            while (offset < text.length()) {
+                advance();
+            }
+        }
+
+        private void advance() {
+            int c = text.codePointAt(offset);
+            offset += Character.charCount(c);
+            codePoint++;
+            if (c == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+
+        /**
+         * Position of this cursor in the whole source, given where the text starts in it.
+         */
+        Position position(Position textStart) {
+            return new Position(textStart.codePoint + codePoint, textStart.line + line - 1,
+                    line == 1 ? textStart.column + column : column);
+        }
+    }
+}
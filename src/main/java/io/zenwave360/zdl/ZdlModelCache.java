@@ -0,0 +1,146 @@
+package io.zenwave360.zdl;
+
+import io.zenwave360.zdl.antlr.ZdlModel;
+import io.zenwave360.zdl.antlr.ZdlModelCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Directory of parsed models, keyed by a hash of the source and the parser settings (see
+ * {@link ZdlParser#withCache(ZdlModelCache)}), so unchanged sources are not parsed again across builds and processes.
+ * <p>
+ * Each model is stored in its own file, written to a temporary file first and then moved in place, so concurrent
+ * builds sharing the directory never read partial entries. Models are stored in the {@link ZdlModelCodec} binary
+ * format. When the directory grows over its maximum size the least
+ * recently used entries are deleted, using the file modification time, which is updated on every hit.
+ * <p>
+ * The cache never fails a parse: unreadable entries are deleted and treated as misses, and models that can't be
+ * written are just not cached.
+ */
+public class ZdlModelCache {
+
+    private static final String EXTENSION = ".model";
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * @param directory where to store the models, created if it doesn't exist
+     * @param maxSize   maximum size of all stored models in bytes
+     */
+    public ZdlModelCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the model stored with the given key, or <code>null</code> if there is none.
+     */
+    public ZdlModel get(String key) {
+        var file = file(key);
+        try {
+            var content = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return ZdlModelCodec.decode(content);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            delete(file);
+            return null;
+        }
+    }
+
+    public void put(String key, ZdlModel model) {
+        Path temp = null;
+        try {
+            var content = ZdlModelCodec.encode(model);
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict(file(key));
+        } catch (IOException | IllegalArgumentException e) {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+    }
+
+    /**
+     * Deletes all stored models.
+     */
+    public void clear() throws IOException {
+        for (var entry : entries()) {
+            delete(entry);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    private void evict(Path written) throws IOException {
+        var entries = entries();
+        long size = 0;
+        for (var entry : entries) {
+            size += size(entry);
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        // the entry just written goes last, whatever the timestamp resolution
+        entries.sort(Comparator.comparing((Path entry) -> entry.equals(written)).thenComparing(ZdlModelCache::lastModified));
+        for (var entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            size -= size(entry);
+            delete(entry);
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (var files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).toList());
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0; // deleted by a concurrent eviction
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // deleted or locked by a concurrent build
+        }
+    }
+}
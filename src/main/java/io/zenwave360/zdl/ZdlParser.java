@@ -1,18 +1,29 @@
 package io.zenwave360.zdl;
 
-import io.zenwave360.zdl.antlr.ZdlLexer;
+import io.zenwave360.zdl.antlr.Inflector;
 import io.zenwave360.zdl.antlr.ZdlListenerImpl;
 import io.zenwave360.zdl.antlr.ZdlModel;
 import io.zenwave360.zdl.antlr.ZdlModelPostProcessor;
 import io.zenwave360.zdl.antlr.ZdlModelValidator;
+import io.zenwave360.zdl.antlr.ZdlParallelParser;
+import io.zenwave360.zdl.antlr.ZdlRecognizers;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 
 public class ZdlParser {
 
@@ -20,8 +31,20 @@ public class ZdlParser {
 
     public static final List<String> STANDARD_VALIDATIONS = List.of("required", "unique", "min", "max", "minlength", "maxlength", "pattern");
 
+    /**
+     * Version of this library, part of cache keys so models parsed by other versions are not reused.
+     */
+    private static final String VERSION = loadVersion();
+
+    private static final int CACHE_KEY_CHUNK = 8192;
+
     private List<String> standardFieldTypes = STANDARD_FIELD_TYPES;
     private List<String> extraFieldTypes = List.of();
+    private boolean locations = true;
+    private boolean twoStageParsing = true;
+    private boolean parallelParsing = false;
+    private boolean lazyJavadoc = false;
+    private ZdlModelCache cache;
     public ZdlParser withStandardFieldTypes(List<String> standardFieldTypes) {
         this.standardFieldTypes = standardFieldTypes;
         return this;
@@ -30,25 +53,162 @@ public class ZdlParser {
         this.extraFieldTypes = extraFieldTypes;
         return this;
     }
+
+    /**
+     * Whether to record source locations in the parsed model (default <code>true</code>). Disable it for batch code
+     * generation, where locations are not needed; problems will then be reported without a location.
+     */
+    public ZdlParser withLocations(boolean locations) {
+        this.locations = locations;
+        return this;
+    }
+
+    /**
+     * Whether to parse with the faster SLL prediction mode first, falling back to full LL (with the same error reporting
+     * as a single LL parse) only when SLL fails (default <code>true</code>). Disable it to always parse with LL.
+     */
+    public ZdlParser withTwoStageParsing(boolean twoStageParsing) {
+        this.twoStageParsing = twoStageParsing;
+        return this;
+    }
+
+    /**
+     * Whether to split large sources in chunks of top level declarations and parse them in parallel on the common
+     * {@link ForkJoinPool} (default <code>false</code>). The model is the same as a sequential parse; sources with syntax
+     * errors are parsed again sequentially to report them.
+     */
+    public ZdlParser withParallelParsing(boolean parallelParsing) {
+        this.parallelParsing = parallelParsing;
+        return this;
+    }
+
+    /**
+     * Whether to extract javadoc text from the source only when it is read (default <code>false</code>), see
+     * {@link ZdlListenerImpl#withLazyJavadoc(boolean)}. Javadoc values are then <code>CharSequence</code>s, not
+     * <code>String</code>s, except in models read from the cache.
+     */
+    public ZdlParser withLazyJavadoc(boolean lazyJavadoc) {
+        this.lazyJavadoc = lazyJavadoc;
+        return this;
+    }
+
+    /**
+     * Looks up parsed models in the given cache before parsing, and stores them there after parsing. Models are keyed by
+     * a hash of the source, the version of this library and the settings that change the parsed model: field types,
+     * locations and the rules of the shared {@link Inflector}, which names and paths in the model come from. The cache is
+     * not used while the shared inflector is an {@link Inflector} subclass, which could inflect words any other way.
+     */
+    public ZdlParser withCache(ZdlModelCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
     public ZdlModel parseModel(String model) throws IOException {
-        CharStream zdl = CharStreams.fromString(model);
-        ZdlLexer lexer = new ZdlLexer(zdl);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        io.zenwave360.zdl.antlr.ZdlParser parser = new io.zenwave360.zdl.antlr.ZdlParser(tokens);
-        ParseTree tree = parser.zdl();
+        return parseModel(CharStreams.fromString(model));
+    }
+
+    /**
+     * Parses the given UTF-8 file, decoding it straight into the lexer input, without reading it into a string first.
+     */
+    public ZdlModel parseModel(Path model) throws IOException {
+        return parseModel(CharStreams.fromPath(model, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses all the content of the given reader, which is not closed.
+     */
+    public ZdlModel parseModel(Reader model) throws IOException {
+        return parseModel(CharStreams.fromReader(model));
+    }
+
+    private ZdlModel parseModel(CharStream model) throws IOException {
+        var inflector = Inflector.getInstance();
+        if (cache == null || inflector.getClass() != Inflector.class) {
+            return postProcessAndValidate(parseDeclarations(model));
+        }
+        var key = cacheKey(inflector, model);
+        var zdlModel = cache.get(key);
+        if (zdlModel == null) {
+            zdlModel = postProcessAndValidate(parseDeclarations(model));
+            cache.put(key, zdlModel);
+        }
+        return zdlModel;
+    }
+
+    private String cacheKey(Inflector inflector, CharStream model) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var settings = List.of(VERSION, String.join(",", standardFieldTypes), String.join(",", extraFieldTypes),
+                    String.valueOf(locations), inflector.describeRules());
+            for (var setting : settings) {
+                digest.update(setting.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            // the source is hashed in chunks (of whole code points), not copied into one string
+            for (int start = 0; start < model.size(); start += CACHE_KEY_CHUNK) {
+                var chunk = model.getText(Interval.of(start, Math.min(start + CACHE_KEY_CHUNK, model.size()) - 1));
+                digest.update(chunk.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String loadVersion() {
+        try (var properties = ZdlParser.class.getResourceAsStream("zdl-jvm.properties")) {
+            var version = new Properties();
+            if (properties != null) {
+                version.load(properties);
+            }
+            return version.getProperty("version", "unknown");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the given source into a model that is not post processed nor validated yet.
+     */
+    ZdlModel parseDeclarations(String model) {
+        return parseDeclarations(CharStreams.fromString(model));
+    }
+
+    private ZdlModel parseDeclarations(CharStream zdl) {
+        if (parallelParsing) {
+            var zdlModel = ZdlParallelParser.parse(zdl, this::newListener, ForkJoinPool.commonPool());
+            if (zdlModel != null) {
+                return zdlModel;
+            }
+        }
+        ParseTree tree = ZdlRecognizers.parse(zdl, twoStageParsing);
         ParseTreeWalker walker = new ParseTreeWalker();
-        ZdlListenerImpl listener = new ZdlListenerImpl();
+        ZdlListenerImpl listener = newListener();
         walker.walk(listener, tree);
-        var zdlModel = listener.getModel();
-        zdlModel = ZdlModelPostProcessor.postProcess(zdlModel);
+        return listener.getModel();
+    }
+
+    ZdlListenerImpl newListener() {
+        return new ZdlListenerImpl().withLocations(locations).withLazyJavadoc(lazyJavadoc);
+    }
+
+    ZdlModel postProcessAndValidate(ZdlModel zdlModel) {
+        return validate(ZdlModelPostProcessor.postProcess(zdlModel));
+    }
+
+    private ZdlModel validate(ZdlModel zdlModel) {
         try {
-            zdlModel = new ZdlModelValidator()
-                    .withStandardFieldTypes(standardFieldTypes)
-                    .withExtraFieldTypes(extraFieldTypes)
-                    .validate(zdlModel);
+            zdlModel = newValidator().validate(zdlModel);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return zdlModel;
     }
+
+    ZdlModelValidator newValidator() {
+        return new ZdlModelValidator()
+                .withStandardFieldTypes(standardFieldTypes)
+                .withExtraFieldTypes(extraFieldTypes);
+    }
 }
@@ -0,0 +1,155 @@
+package io.zenwave360.zdl;
+
+import io.zenwave360.zdl.antlr.ZdlModel;
+import io.zenwave360.zdl.antlr.ZdlModelMerger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parses a ZDL file together with the files it imports with <code>@import("path/to/file.zdl")</code>, into one model.
+ * <p>
+ * Import values are resolved relative to the directory of the importing file, and those that are not an existing file
+ * (like artifact coordinates) are only recorded in <code>imports</code>, as {@link ZdlParser} does. Imported files are
+ * parsed concurrently on the common {@link ForkJoinPool}, each one once even if imported from several files, and merged
+ * before the files that import them, the root file last, so its declarations win over imported ones with the same
+ * name. The merged model is post processed and validated as a whole.
+ * <p>
+ * Locations are only kept for the root file. Problems found in imported declarations are reported with the path of
+ * their file in <code>source</code>, and their location in that file.
+ * <p>
+ * Parsed files are cached by path and content hash for the lifetime of this instance, so unchanged files are not parsed
+ * again by later calls. Each call merges copies of the cached declarations, so returned models don't share anything
+ * with the cache or with each other. Instances are thread safe.
+ */
+public class ZdlProjectParser {
+
+    private final ZdlParser parser;
+    private final Map<Path, ParsedFile> cache = new ConcurrentHashMap<>();
+
+    public ZdlProjectParser() {
+        this(new ZdlParser());
+    }
+
+    /**
+     * Uses the given parser settings (field types, locations, parallel parsing) for all files.
+     */
+    public ZdlProjectParser(ZdlParser parser) {
+        this.parser = parser;
+    }
+
+    public ZdlModel parseProject(Path zdlFile) throws IOException {
+        var root = zdlFile.toAbsolutePath().normalize();
+        var files = new ConcurrentHashMap<Path, CompletableFuture<ParsedFile>>();
+        submit(root, files);
+
+        var ordered = new LinkedHashMap<Path, ParsedFile>();
+        collect(root, files, ordered, new HashSet<>());
+        var model = parser.newListener().getModel();
+        for (var file : ordered.entrySet()) {
+            // cached files are shared by concurrent and later calls, merge copies that post processing can modify
+            var fileModel = ZdlModelMerger.copy(file.getValue().model());
+            if (file.getKey().equals(root)) {
+                ZdlModelMerger.merge(model, fileModel, 0, 1, 0);
+            } else {
+                ZdlModelMerger.mergeWithoutLocations(model, fileModel);
+                model.withSourceLocations(file.getKey().toString(), (Map) fileModel.get("locations"));
+            }
+        }
+        return parser.postProcessAndValidate(model);
+    }
+
+    /**
+     * Drops all cached files.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private void submit(Path file, Map<Path, CompletableFuture<ParsedFile>> files) {
+        files.computeIfAbsent(file, f -> CompletableFuture.supplyAsync(() -> {
+            var parsed = parse(f);
+            for (var imported : parsed.imports()) {
+                submit(imported, files);
+            }
+            return parsed;
+        }, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Waits for the given file and its imports, adding them imports first.
+     */
+    private void collect(Path file, Map<Path, CompletableFuture<ParsedFile>> files, Map<Path, ParsedFile> ordered, Set<Path> visited) throws IOException {
+        if (!visited.add(file)) {
+            return;
+        }
+        ParsedFile parsed;
+        try {
+            parsed = files.get(file).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        for (var imported : parsed.imports()) {
+            collect(imported, files, ordered, visited);
+        }
+        ordered.put(file, parsed);
+    }
+
+    private ParsedFile parse(Path file) {
+        try {
+            var content = Files.readAllBytes(file);
+            var hash = MessageDigest.getInstance("SHA-256").digest(content);
+            var cached = cache.get(file);
+            if (cached != null && MessageDigest.isEqual(cached.hash(), hash)) {
+                return cached;
+            }
+            var model = parser.parseDeclarations(new String(content, StandardCharsets.UTF_8));
+            var parsed = new ParsedFile(hash, model, resolveImports(file, model));
+            cache.put(file, parsed);
+            return parsed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Path> resolveImports(Path file, ZdlModel model) {
+        var imports = new ArrayList<Path>();
+        for (var zdlImport : (List<Map<String, Object>>) model.get("imports")) {
+            if (zdlImport.get("value") instanceof String value) {
+                try {
+                    var imported = file.resolveSibling(value).normalize();
+                    if (Files.isRegularFile(imported)) {
+                        imports.add(imported);
+                    }
+                } catch (InvalidPathException e) {
+                    // not a file path
+                }
+            }
+        }
+        return imports;
+    }
+
+    private record ParsedFile(byte[] hash, ZdlModel model, List<Path> imports) {
+    }
+}
@@ -0,0 +1,490 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link FluentMap} for small objects with known keys, like fields and entities and their options, which are created by
+ * the hundred thousand for large models.
+ * <p>
+ * Entries are kept in insertion order in a single array of alternating keys and values, sized for the keys the object is
+ * expected to have, instead of a hash table plus one node per entry. Empty maps share the same empty array until the
+ * first write. Lookups scan the array, which is as fast as hashing for a few entries; maps growing over
+ * {@link #MAX_SIZE} entries move them to the inherited <code>LinkedHashMap</code> and from then on behave as a plain
+ * {@link FluentMap}. Views taken before that iterate whichever storage the map has when they are iterated.
+ */
+class CompactMap extends FluentMap {
+
+    static final int MAX_SIZE = 16;
+
+    private static final Object[] EMPTY = {};
+
+    private transient Object[] entries;
+    private transient int size;
+    private transient int modifications;
+
+    CompactMap() {
+        this.entries = EMPTY;
+    }
+
+    /**
+     * @param expectedSize number of keys the object is expected to have
+     */
+    CompactMap(int expectedSize) {
+        this.entries = expectedSize > 0 && expectedSize <= MAX_SIZE ? new Object[expectedSize * 2] : EMPTY;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            if (entries[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size * 2; i += 2) {
+            if (entries[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void materialize() {
+        if (entries != null) {
+            var entries = this.entries;
+            int size = this.size;
+            this.entries = null;
+            this.size = 0;
+            for (int i = 0; i < size * 2; i += 2) {
+                super.put((String) entries[i], entries[i + 1]);
+            }
+        }
+    }
+
+    private Object writeReplace() {
+        materialize();
+        return this;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(entries, index + 2, entries, index, size * 2 - index - 2);
+        size--;
+        entries[size * 2] = null;
+        entries[size * 2 + 1] = null;
+        modifications++;
+    }
+
+    @Override
+    public int size() {
+        return entries != null ? size : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entries != null ? indexOf(key) >= 0 : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (entries == null) {
+            return super.containsValue(value);
+        }
+        for (int i = 1; i < size * 2; i += 2) {
+            if (Objects.equals(entries[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (entries == null) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? entries[index + 1] : defaultValue;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (entries == null) {
+            return super.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            var previous = entries[index + 1];
+            entries[index + 1] = value;
+            return previous;
+        }
+        if (key == null || size == MAX_SIZE) {
+            materialize();
+            return super.put(key, value);
+        }
+        if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, Math.min(MAX_SIZE, Math.max(2, size + (size + 1) / 2)) * 2);
+        }
+        entries[size * 2] = key;
+        entries[size * 2 + 1] = value;
+        size++;
+        modifications++;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        if (entries == null || size + m.size() > MAX_SIZE) {
+            materialize();
+            super.putAll(m);
+            return;
+        }
+        for (var entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        if (entries == null) {
+            return super.putIfAbsent(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0 && entries[index + 1] != null) {
+            return entries[index + 1];
+        }
+        return put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (entries == null) {
+            return super.remove(key);
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        var previous = entries[index + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (entries == null) {
+            return super.remove(key, value);
+        }
+        int index = indexOf(key);
+        if (index < 0 || !Objects.equals(entries[index + 1], value)) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        if (entries == null) {
+            return super.replace(key, oldValue, newValue);
+        }
+        int index = indexOf(key);
+        if (index < 0 || !Objects.equals(entries[index + 1], oldValue)) {
+            return false;
+        }
+        entries[index + 1] = newValue;
+        return true;
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        if (entries == null) {
+            return super.replace(key, value);
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        var previous = entries[index + 1];
+        entries[index + 1] = value;
+        return previous;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        if (entries == null) {
+            super.replaceAll(function);
+            return;
+        }
+        int modifications = this.modifications;
+        for (int i = 0; i < size * 2; i += 2) {
+            entries[i + 1] = function.apply((String) entries[i], entries[i + 1]);
+            if (modifications != this.modifications) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        materialize();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        if (entries == null) {
+            super.clear();
+            return;
+        }
+        Arrays.fill(entries, 0, size * 2, null);
+        size = 0;
+        modifications++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (entries == null) {
+            super.forEach(action);
+            return;
+        }
+        int modifications = this.modifications;
+        for (int i = 0; i < size * 2; i += 2) {
+            action.accept((String) entries[i], entries[i + 1]);
+            if (modifications != this.modifications) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        if (entries == null) {
+            return super.keySet();
+        }
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                if (CompactMap.this.entries == null) {
+                    return CompactMap.super.keySet().iterator();
+                }
+                var entries = new EntryIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return entries.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object key) {
+                int size = size();
+                CompactMap.this.remove(key);
+                return size != size();
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        if (entries == null) {
+            return super.values();
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Object> iterator() {
+                if (CompactMap.this.entries == null) {
+                    return CompactMap.super.values().iterator();
+                }
+                var entries = new EntryIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        return entries.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entries == null) {
+            return super.entrySet();
+        }
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                if (entries == null) {
+                    return CompactMap.super.entrySet().iterator();
+                }
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Map.Entry<?, ?> entry && containsKey(entry.getKey())
+                        && Objects.equals(get(entry.getKey()), entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return o instanceof Map.Entry<?, ?> entry && CompactMap.this.remove(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Object clone() {
+        materialize();
+        return super.clone();
+    }
+
+    /**
+     * Iterates the compact entries. Once the map moves to the inherited storage, removals go through the map and any other
+     * change is a concurrent modification.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+        final Object[] entries = CompactMap.this.entries;
+        int modifications = CompactMap.this.modifications;
+        int next;
+        int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (modifications != CompactMap.this.modifications || entries != CompactMap.this.entries) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            var key = (String) entries[current * 2];
+            return new AbstractMap.SimpleEntry<>(key, entries[current * 2 + 1]) {
+                @Override
+                public Object setValue(Object value) {
+                    CompactMap.this.replace(key, value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (modifications != CompactMap.this.modifications || entries != CompactMap.this.entries) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(current * 2);
+            modifications = CompactMap.this.modifications;
+            next = current;
+            current = -1;
+        }
+    }
+}
@@ -23,21 +23,51 @@
  */
 package io.zenwave360.zdl.antlr;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Inflector {
 
-    protected static final Inflector INSTANCE = new Inflector();
+    private static final Rules NO_RULES = new Rules(List.of(), List.of(), Set.of());
+
+    private static volatile Inflector instance = new Inflector();
 
     public static final Inflector getInstance() {
-        return INSTANCE;
+        return instance;
+    }
+
+    /**
+     * Replaces the shared instance, for instance with one customized through {@link #builder()}. Calls already running
+     * keep using the previous one.
+     */
+    public static void setInstance( Inflector inflector ) {
+        if (inflector == null) throw new IllegalArgumentException("inflector");
+        instance = inflector;
+    }
+
+    /**
+     * Returns a builder starting with the default rules.
+     */
+    public static Builder builder() {
+        return new Inflector().toBuilder();
     }
 
-    protected class Rule {
+    protected static class Rule {
 
         protected final String expression;
         protected final Pattern expressionPattern;
@@ -84,22 +114,375 @@ public class Inflector {
         }
     }
 
-    private LinkedList<Rule> plurals = new LinkedList<Rule>();
-    private LinkedList<Rule> singulars = new LinkedList<Rule>();
     /**
-     * The lowercase words that are to be excluded and not processed. This map can be modified by the users via
-     * {@link #getUncountables()}.
+     * Applies a list of rules as trying them in order would, matching all the simple suffix rules at once.
+     * <p>
+     * Rules like <code>(x|ch|ss|sh)$</code>, <code>([ti])um$</code> or <code>(p)erson$</code> (a literal suffix, optionally
+     * starting with a group of literal alternatives or a character class, replaced with text and <code>$1</code>) are
+     * indexed in a trie of their reversed suffixes, so one walk over the tail of the word finds the first of them that
+     * applies. Other rules are still applied with their regular expression, but only those before that one.
+     */
+    protected static class RuleIndex {
+
+        private static final Object GROUP = new Object();
+
+        private final Node root = new Node();
+        private final List<Rule> rules;
+        private final List<Integer> complexRules = new ArrayList<Integer>();
+
+        protected RuleIndex( List<Rule> rules ) {
+            this.rules = new ArrayList<Rule>(rules);
+            for (int index = 0; index < this.rules.size(); index++) {
+                if (!addSuffixes(this.rules.get(index), index)) complexRules.add(index);
+            }
+        }
+
+        protected String apply( String word ) {
+            // "$" also matches before a final line terminator, leave those words to the regular expressions
+            if (isLineTerminator(word.charAt(word.length() - 1))) return applyAll(word);
+            Suffix suffix = null;
+            int suffixLength = 0;
+            Node node = root;
+            for (int depth = 0; node != null; depth++) {
+                for (Suffix candidate : node.suffixes) {
+                    // the longest alternative of the same rule wins, as the leftmost match does
+                    if (suffix == null || candidate.rule <= suffix.rule) {
+                        suffix = candidate;
+                        suffixLength = depth;
+                    }
+                }
+                node = depth < word.length() ? node.child(key(word.charAt(word.length() - 1 - depth))) : null;
+            }
+            for (int index : complexRules) {
+                if (suffix != null && index > suffix.rule) break;
+                String result = rules.get(index).apply(word);
+                if (result != null) return result;
+            }
+            if (suffix == null) return word;
+            int start = word.length() - suffixLength;
+            StringBuilder result = new StringBuilder(word.length() + 8).append(word, 0, start);
+            for (Object part : suffix.replacement) {
+                if (part == GROUP) {
+                    result.append(word, start, start + suffix.groupLength);
+                } else {
+                    result.append((String)part);
+                }
+            }
+            return result.toString();
+        }
+
+        private String applyAll( String word ) {
+            for (Rule rule : rules) {
+                String result = rule.apply(word);
+                if (result != null) return result;
+            }
+            return word;
+        }
+
+        /**
+         * Adds the suffixes of a simple rule, returning false if the rule is not simple.
+         */
+        private boolean addSuffixes( Rule rule,
+                                     int index ) {
+            String expression = rule.expression;
+            if (!expression.endsWith("$")) return false;
+            List<String> alternatives = new ArrayList<String>();
+            int literalStart = 0;
+            if (expression.startsWith("(")) {
+                int groupEnd = expression.indexOf(')');
+                if (groupEnd < 0) return false;
+                String group = expression.substring(1, groupEnd);
+                if (group.length() > 2 && group.startsWith("[") && group.endsWith("]")) {
+                    for (char c : group.substring(1, group.length() - 1).toCharArray()) {
+                        if (c >= 0x80 || "[]\\^-&".indexOf(c) >= 0) return false;
+                        alternatives.add(String.valueOf(c));
+                    }
+                } else {
+                    for (String alternative : group.split("\\|", -1)) {
+                        if (alternative.isEmpty() || !isLetters(alternative)) return false;
+                        alternatives.add(alternative);
+                    }
+                }
+                literalStart = groupEnd + 1;
+            }
+            String literal = expression.substring(literalStart, expression.length() - 1);
+            if (!isLetters(literal)) return false;
+            List<Object> replacement = parseReplacement(rule.replacement, !alternatives.isEmpty());
+            if (replacement == null) return false;
+            if (alternatives.isEmpty()) alternatives.add("");
+            for (String alternative : alternatives) {
+                Node node = root;
+                String suffix = alternative + literal;
+                for (int i = suffix.length() - 1; i >= 0; i--) {
+                    node = node.addChild(key(suffix.charAt(i)));
+                }
+                node.suffixes.add(new Suffix(index, alternative.length(), replacement));
+            }
+            return true;
+        }
+
+        /**
+         * Splits the replacement in text and {@link #GROUP} references, or returns null if it has other references or
+         * escapes.
+         */
+        private static List<Object> parseReplacement( String replacement,
+                                                      boolean hasGroup ) {
+            List<Object> parts = new ArrayList<Object>();
+            int start = 0;
+            for (int i = 0; i < replacement.length(); i++) {
+                char c = replacement.charAt(i);
+                if (c == '\\') return null;
+                if (c == '$') {
+                    if (!hasGroup || !replacement.startsWith("1", i + 1)) return null;
+                    if (i + 2 < replacement.length() && Character.isDigit(replacement.charAt(i + 2))) return null;
+                    if (i > start) parts.add(replacement.substring(start, i));
+                    parts.add(GROUP);
+                    start = i + 2;
+                    i++;
+                }
+            }
+            if (start < replacement.length()) parts.add(replacement.substring(start));
+            return parts;
+        }
+
+        private static boolean isLetters( String text ) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (!isUpper(c) && !isLower(c)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Case insensitive matching is only for ASCII letters, as in the rule patterns.
+         */
+        private static char key( char c ) {
+            return isUpper(c) ? (char)(c - 'A' + 'a') : c;
+        }
+
+        private static class Suffix {
+            final int rule;
+            final int groupLength;
+            final List<Object> replacement;
+
+            Suffix( int rule,
+                    int groupLength,
+                    List<Object> replacement ) {
+                this.rule = rule;
+                this.groupLength = groupLength;
+                this.replacement = replacement;
+            }
+        }
+
+        private static class Node {
+            char[] keys = new char[0];
+            Node[] children = new Node[0];
+            final List<Suffix> suffixes = new ArrayList<Suffix>(1);
+
+            Node child( char key ) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == key) return children[i];
+                }
+                return null;
+            }
+
+            Node addChild( char key ) {
+                Node child = child(key);
+                if (child == null) {
+                    child = new Node();
+                    keys = Arrays.copyOf(keys, keys.length + 1);
+                    children = Arrays.copyOf(children, children.length + 1);
+                    keys[keys.length - 1] = key;
+                    children[children.length - 1] = child;
+                }
+                return child;
+            }
+        }
+    }
+
+    /**
+     * Maximum number of results remembered per transformation, see {@link Memo}.
+     */
+    protected static final int MEMO_SIZE = 4096;
+
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
+    /**
+     * Remembers the results of a transformation, safe for concurrent use. When full it is just cleared, which is cheaper
+     * than tracking usage and good enough for the bounded set of names found in models.
+     */
+    protected static class Memo {
+
+        private final Map<String, String> results = new ConcurrentHashMap<String, String>();
+
+        protected String get( String input,
+                              UnaryOperator<String> transformation ) {
+            String result = results.get(input);
+            if (result == null) {
+                result = transformation.apply(input);
+                if (results.size() >= MEMO_SIZE) results.clear();
+                results.put(input, result);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Immutable rules and uncountable words, with the indexes and memoized results derived from them. Changes to an
+     * inflector replace its rules with a new instance, so concurrent calls see either all or none of a change, without
+     * locking.
      */
-    private final Set<String> uncountables = new HashSet<String>();
+    protected static final class Rules {
+
+        private final List<Rule> plurals;
+        private final List<Rule> singulars;
+        /**
+         * The lowercase words that are to be excluded and not processed.
+         */
+        private final Set<String> uncountables;
+
+        private final Memo pluralized = new Memo();
+        private final Memo singularized = new Memo();
+        // built on first use
+        private volatile RuleIndex pluralIndex;
+        private volatile RuleIndex singularIndex;
+        private volatile String description;
+
+        private Rules( List<Rule> plurals,
+                       List<Rule> singulars,
+                       Set<String> uncountables ) {
+            this.plurals = Collections.unmodifiableList(new ArrayList<Rule>(plurals));
+            this.singulars = Collections.unmodifiableList(new ArrayList<Rule>(singulars));
+            this.uncountables = Collections.unmodifiableSet(new HashSet<String>(uncountables));
+        }
+
+        private String pluralize( String word ) {
+            if (uncountables.contains(word.toLowerCase())) return word;
+            RuleIndex index = this.pluralIndex;
+            if (index == null) this.pluralIndex = index = new RuleIndex(plurals);
+            return index.apply(word);
+        }
+
+        private String singularize( String word ) {
+            if (uncountables.contains(word.toLowerCase())) return word;
+            RuleIndex index = this.singularIndex;
+            if (index == null) this.singularIndex = index = new RuleIndex(singulars);
+            return index.apply(word);
+        }
+
+        private String describe() {
+            String description = this.description;
+            if (description == null) {
+                StringBuilder builder = new StringBuilder();
+                for (List<Rule> rules : List.of(plurals, singulars)) {
+                    for (Rule rule : rules) {
+                        builder.append(rule.expression).append('\0').append(rule.replacement).append('\0');
+                    }
+                    builder.append('\n');
+                }
+                builder.append(String.join("\0", new TreeSet<String>(uncountables)));
+                this.description = description = builder.toString();
+            }
+            return description;
+        }
+    }
+
+    /**
+     * Collects rules and uncountable words to build an {@link Inflector}. Rules added later are tried first.
+     */
+    public static class Builder {
+
+        private final LinkedList<Rule> plurals;
+        private final LinkedList<Rule> singulars;
+        private final Set<String> uncountables;
+
+        private Builder( Rules rules ) {
+            this.plurals = new LinkedList<Rule>(rules.plurals);
+            this.singulars = new LinkedList<Rule>(rules.singulars);
+            this.uncountables = new HashSet<String>(rules.uncountables);
+        }
+
+        public Builder addPluralize( String rule,
+                                     String replacement ) {
+            this.plurals.addFirst(new Rule(rule, replacement));
+            return this;
+        }
+
+        public Builder addSingularize( String rule,
+                                       String replacement ) {
+            this.singulars.addFirst(new Rule(rule, replacement));
+            return this;
+        }
+
+        public Builder addIrregular( String singular,
+                                     String plural ) {
+            String[] rules = irregularRules(singular, plural);
+            addPluralize(rules[0], rules[1]);
+            addSingularize(rules[2], rules[3]);
+            return this;
+        }
+
+        public Builder addUncountable( String... words ) {
+            if (words == null) return this;
+            for (String word : words) {
+                if (word != null) uncountables.add(word.trim().toLowerCase());
+            }
+            return this;
+        }
+
+        /**
+         * Removes all rules and uncountable words.
+         */
+        public Builder clear() {
+            this.plurals.clear();
+            this.singulars.clear();
+            this.uncountables.clear();
+            return this;
+        }
+
+        public Inflector build() {
+            return new Inflector(rules());
+        }
+
+        private Rules rules() {
+            return new Rules(plurals, singulars, uncountables);
+        }
+    }
+
+    private volatile Rules rules = NO_RULES;
+
+    // case transformations without extra delimiters, the ones used while parsing models, are memoized
+    private final Memo upperCamelCased = new Memo();
+    private final Memo lowerCamelCased = new Memo();
+    private final Memo underscored = new Memo();
+    private final Memo kebabCased = new Memo();
 
     public Inflector() {
         initialize();
     }
 
     protected Inflector( Inflector original ) {
-        this.plurals.addAll(original.plurals);
-        this.singulars.addAll(original.singulars);
-        this.uncountables.addAll(original.uncountables);
+        this.rules = original.rules;
+    }
+
+    private Inflector( Rules rules ) {
+        this.rules = rules;
+    }
+
+    /**
+     * Describes the current rules and uncountable words of this inflector, in the order they are tried. Inflectors with
+     * the same description inflect words the same way, unless a subclass changes how.
+     */
+    public String describeRules() {
+        return rules.describe();
+    }
+
+    /**
+     * Returns a builder starting with the current rules of this inflector.
+     */
+    public Builder toBuilder() {
+        return new Builder(this.rules);
     }
 
     @Override
@@ -138,12 +521,8 @@ public class Inflector {
         if (word == null) return null;
         String wordStr = word.toString().trim();
         if (wordStr.length() == 0) return wordStr;
-        if (isUncountable(wordStr)) return wordStr;
-        for (Rule rule : this.plurals) {
-            String result = rule.apply(wordStr);
-            if (result != null) return result;
-        }
-        return wordStr;
+        Rules rules = this.rules;
+        return rules.pluralized.get(wordStr, rules::pluralize);
     }
 
     public String pluralize( Object word,
@@ -182,12 +561,8 @@ public class Inflector {
         if (word == null) return null;
         String wordStr = word.toString().trim();
         if (wordStr.length() == 0) return wordStr;
-        if (isUncountable(wordStr)) return wordStr;
-        for (Rule rule : this.singulars) {
-            String result = rule.apply(wordStr);
-            if (result != null) return result;
-        }
-        return wordStr;
+        Rules rules = this.rules;
+        return rules.singularized.get(wordStr, rules::singularize);
     }
 
     /**
@@ -273,23 +648,69 @@ public class Inflector {
                              boolean uppercaseFirstLetter,
                              char... delimiterChars ) {
         if (lowerCaseAndUnderscoredWord == null) return null;
-        lowerCaseAndUnderscoredWord = lowerCaseAndUnderscoredWord.trim();
-        if (lowerCaseAndUnderscoredWord.length() == 0) return "";
-        if (uppercaseFirstLetter) {
-            String result = lowerCaseAndUnderscoredWord;
-            // Replace any extra delimiters with underscores (before the underscores are converted in the next step)...
-            if (delimiterChars != null) {
-                for (char delimiterChar : delimiterChars) {
-                    result = result.replace(delimiterChar, '_');
-                }
+        if (delimiterChars == null || delimiterChars.length == 0) {
+            return uppercaseFirstLetter
+                    ? upperCamelCased.get(lowerCaseAndUnderscoredWord, word -> toCamelCase(word, true))
+                    : lowerCamelCased.get(lowerCaseAndUnderscoredWord, word -> toCamelCase(word, false));
+        }
+        return toCamelCase(lowerCaseAndUnderscoredWord, uppercaseFirstLetter, delimiterChars);
+    }
+
+    /**
+     * Same as replacing any extra delimiters with underscores and then <code>(^|_)(.)</code> with the uppercased second
+     * group, in one pass.
+     */
+    private String toCamelCase( String lowerCaseAndUnderscoredWord,
+                                boolean uppercaseFirstLetter,
+                                char... delimiterChars ) {
+        String word = lowerCaseAndUnderscoredWord.trim();
+        if (word.length() == 0) return "";
+        if (!uppercaseFirstLetter && word.length() < 2) return word;
+        boolean asciiCase = isAsciiCaseLocale();
+        StringBuilder result = new StringBuilder(word.length());
+        int length = word.length();
+        int i = 0;
+        while (i < length) {
+            char c = delimitedChar(word, i, delimiterChars);
+            if (i == 0 && !isLineTerminator(c)) {
+                // Change the case at the beginning ...
+                i += appendUppercase(result, word, i, delimiterChars, asciiCase);
+            } else if (c == '_' && i + 1 < length && !isLineTerminator(delimitedChar(word, i + 1, delimiterChars))) {
+                // ... and after each underscore, removing it
+                i += 1 + appendUppercase(result, word, i + 1, delimiterChars, asciiCase);
+            } else {
+                result.append(c);
+                i++;
             }
+        }
+        if (!uppercaseFirstLetter) {
+            result.setCharAt(0, Character.toLowerCase(word.charAt(0)));
+        }
+        return result.toString();
+    }
 
-            // Change the case at the beginning at after each underscore ...
-            return replaceAllWithUppercase(result, "(^|_)(.)", 2);
+    /**
+     * Appends the uppercased character (or surrogate pair) at the given index, returning the number of chars consumed.
+     */
+    private static int appendUppercase( StringBuilder result,
+                                        String word,
+                                        int index,
+                                        char[] delimiterChars,
+                                        boolean asciiCase ) {
+        char c = delimitedChar(word, index, delimiterChars);
+        if (c < 0x80 && asciiCase) {
+            result.append(c >= 'a' && c <= 'z' ? (char)(c - 'a' + 'A') : c);
+            return 1;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < word.length()) {
+            char low = delimitedChar(word, index + 1, delimiterChars);
+            if (Character.isLowSurrogate(low)) {
+                result.append(new String(new char[] {c, low}).toUpperCase());
+                return 2;
+            }
         }
-        if (lowerCaseAndUnderscoredWord.length() < 2) return lowerCaseAndUnderscoredWord;
-        return "" + Character.toLowerCase(lowerCaseAndUnderscoredWord.charAt(0))
-                + camelCase(lowerCaseAndUnderscoredWord, true, delimiterChars).substring(1);
+        result.append(String.valueOf(c).toUpperCase());
+        return 1;
     }
 
     /**
@@ -316,22 +737,61 @@ public class Inflector {
     public String underscore( String camelCaseWord,
                               char... delimiterChars ) {
         if (camelCaseWord == null) return null;
-        String result = camelCaseWord.trim();
-        if (result.length() == 0) return "";
-        result = result.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2");
-        result = result.replaceAll("([a-z\\d])([A-Z])", "$1_$2");
-        result = result.replace('-', '_');
-        if (delimiterChars != null) {
-            for (char delimiterChar : delimiterChars) {
-                result = result.replace(delimiterChar, '_');
-            }
+        if (delimiterChars == null || delimiterChars.length == 0) {
+            return underscored.get(camelCaseWord, word -> toUnderscore(word));
         }
-        return result.toLowerCase();
+        return toUnderscore(camelCaseWord, delimiterChars);
+    }
+
+    private String toUnderscore( String camelCaseWord,
+                                 char... delimiterChars ) {
+        return separateWords(camelCaseWord, '_', delimiterChars);
     }
 
     public String kebabCase( String camelCaseWord,
                               char... delimiterChars ) {
-        return underscore(camelCaseWord, delimiterChars).replace('_', '-');
+        if (camelCaseWord == null) return null;
+        if (delimiterChars == null || delimiterChars.length == 0) {
+            return kebabCased.get(camelCaseWord, word -> separateWords(word, '-'));
+        }
+        return separateWords(camelCaseWord, '-', delimiterChars);
+    }
+
+    /**
+     * Same as replacing <code>([A-Z]+)([A-Z][a-z])</code> and then <code>([a-z\d])([A-Z])</code> with
+     * <code>$1_$2</code>, replacing dashes, underscores and any extra delimiters with the separator and lowercasing the
+     * result, in one pass.
+     */
+    private static String separateWords( String camelCaseWord,
+                                         char separator,
+                                         char... delimiterChars ) {
+        int start = 0;
+        int end = camelCaseWord.length();
+        while (start < end && camelCaseWord.charAt(start) <= ' ') start++;
+        while (end > start && camelCaseWord.charAt(end - 1) <= ' ') end--;
+        if (start == end) return "";
+        boolean asciiCase = isAsciiCaseLocale();
+        boolean ascii = true;
+        StringBuilder result = new StringBuilder(end - start + 4);
+        for (int i = start; i < end; i++) {
+            char c = camelCaseWord.charAt(i);
+            if (isUpper(c) && i > start) {
+                char previous = camelCaseWord.charAt(i - 1);
+                if (isLower(previous) || isDigit(previous)
+                        || (isUpper(previous) && i + 1 < end && isLower(camelCaseWord.charAt(i + 1)))) {
+                    result.append(separator);
+                }
+            }
+            if (c == '-' || c == '_' || isDelimiter(c, delimiterChars)) {
+                result.append(separator);
+            } else if (isUpper(c) && asciiCase) {
+                result.append((char)(c - 'A' + 'a'));
+            } else {
+                ascii &= c < 0x80;
+                result.append(c);
+            }
+        }
+        return ascii && asciiCase ? result.toString() : result.toString().toLowerCase();
     }
 
     /**
@@ -371,6 +831,7 @@ public class Inflector {
         if (lowerCaseAndUnderscoredWords == null) return null;
         String result = lowerCaseAndUnderscoredWords.trim();
         if (result.length() == 0) return "";
+        if (removableTokens == null || removableTokens.length == 0) return humanizeWords(result);
         // Remove a trailing "_id" token
         result = result.replaceAll("_id$", "");
         // Remove all of the tokens that should be removed
@@ -383,6 +844,51 @@ public class Inflector {
         return capitalize(result);
     }
 
+    /**
+     * Same as removing <code>_id$</code>, replacing <code>_+</code> with a space and capitalizing the result, in one pass.
+     */
+    private static String humanizeWords( String words ) {
+        int length = words.length();
+        // like "$", "_id$" also matches before a final line terminator
+        int idEnd = length > 0 && isLineTerminator(words.charAt(length - 1)) ? length - 1 : length;
+        int idStart = words.startsWith("_id", idEnd - 3) ? idEnd - 3 : idEnd;
+        StringBuilder result = new StringBuilder(length);
+        boolean underscores = false;
+        for (int i = 0; i < length; i++) {
+            if (i == idStart && idStart < idEnd) {
+                i = idEnd - 1;
+                continue;
+            }
+            char c = words.charAt(i);
+            if (c == '_') {
+                if (!underscores) result.append(' ');
+                underscores = true;
+            } else {
+                result.append(c);
+                underscores = false;
+            }
+        }
+        // capitalize
+        int start = 0;
+        int end = result.length();
+        while (start < end && result.charAt(start) <= ' ') start++;
+        while (end > start && result.charAt(end - 1) <= ' ') end--;
+        if (start == end) return "";
+        if (end - start == 1) return result.substring(start, end).toUpperCase();
+        result.setCharAt(start, Character.toUpperCase(result.charAt(start)));
+        if (!isAsciiCaseLocale()) {
+            return result.charAt(start) + result.substring(start + 1, end).toLowerCase();
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = result.charAt(i);
+            if (c >= 0x80) {
+                return result.charAt(start) + result.substring(start + 1, end).toLowerCase();
+            }
+            if (isUpper(c)) result.setCharAt(i, (char)(c - 'A' + 'a'));
+        }
+        return result.substring(start, end);
+    }
+
     /**
      * Capitalizes all the words and replaces some characters in the string to create a nicer looking title. Underscores are
      * changed to spaces, a trailing "_id" is removed, and any of the supplied tokens are removed. Like
@@ -440,32 +946,111 @@ public class Inflector {
     public boolean isUncountable( String word ) {
         if (word == null) return false;
         String trimmedLower = word.trim().toLowerCase();
-        return this.uncountables.contains(trimmedLower);
+        return this.rules.uncountables.contains(trimmedLower);
     }
 
     /**
-     * Get the set of words that are not processed by the Inflector. The resulting map is directly modifiable.
+     * Get the set of words that are not processed by the Inflector. The resulting set is directly modifiable, changes
+     * replace the rules of this inflector as {@link #addUncountable(String...)} does.
      *
      * @return the set of uncountable words
      */
     public Set<String> getUncountables() {
-        return uncountables;
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                final Iterator<String> iterator = rules.uncountables.iterator();
+                return new Iterator<String>() {
+                    private String current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return current = iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) throw new IllegalStateException();
+                        final String word = current;
+                        update(builder -> builder.uncountables.remove(word));
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return rules.uncountables.size();
+            }
+
+            @Override
+            public boolean contains( Object word ) {
+                return rules.uncountables.contains(word);
+            }
+
+            @Override
+            public boolean add( String word ) {
+                boolean[] added = new boolean[1];
+                update(builder -> added[0] = builder.uncountables.add(word));
+                return added[0];
+            }
+
+            @Override
+            public boolean remove( Object word ) {
+                boolean[] removed = new boolean[1];
+                update(builder -> removed[0] = builder.uncountables.remove(word));
+                return removed[0];
+            }
+
+            @Override
+            public void clear() {
+                update(builder -> builder.uncountables.clear());
+            }
+        };
     }
 
     public void addPluralize( String rule,
                               String replacement ) {
-        final Rule pluralizeRule = new Rule(rule, replacement);
-        this.plurals.addFirst(pluralizeRule);
+        update(builder -> builder.addPluralize(rule, replacement));
     }
 
     public void addSingularize( String rule,
                                 String replacement ) {
-        final Rule singularizeRule = new Rule(rule, replacement);
-        this.singulars.addFirst(singularizeRule);
+        update(builder -> builder.addSingularize(rule, replacement));
     }
 
     public void addIrregular( String singular,
                               String plural ) {
+        String[] rules = irregularRules(singular, plural);
+        addPluralize(rules[0], rules[1]);
+        addSingularize(rules[2], rules[3]);
+    }
+
+    public void addUncountable( String... words ) {
+        if (words == null || words.length == 0) return;
+        update(builder -> builder.addUncountable(words));
+    }
+
+    /**
+     * Replaces the rules with changed copies. Writers are serialized, so no change is lost, while readers keep using
+     * the rules they started with.
+     */
+    private synchronized void update( Consumer<Builder> change ) {
+        Builder builder = new Builder(this.rules);
+        change.accept(builder);
+        this.rules = builder.rules();
+    }
+
+    /**
+     * Returns the plural rule and replacement followed by the singular rule and replacement for an irregular word.
+     */
+    private static String[] irregularRules( String singular,
+                                            String plural ) {
         if (singular == null || singular.isEmpty()) {
             throw new IllegalArgumentException("singular");
         }
@@ -474,15 +1059,8 @@ public class Inflector {
         }
         String singularRemainder = singular.length() > 1 ? singular.substring(1) : "";
         String pluralRemainder = plural.length() > 1 ? plural.substring(1) : "";
-        addPluralize("(" + singular.charAt(0) + ")" + singularRemainder + "$", "$1" + pluralRemainder);
-        addSingularize("(" + plural.charAt(0) + ")" + pluralRemainder + "$", "$1" + singularRemainder);
-    }
-
-    public void addUncountable( String... words ) {
-        if (words == null || words.length == 0) return;
-        for (String word : words) {
-            if (word != null) uncountables.add(word.trim().toLowerCase());
-        }
+        return new String[] {"(" + singular.charAt(0) + ")" + singularRemainder + "$", "$1" + pluralRemainder,
+                "(" + plural.charAt(0) + ")" + pluralRemainder + "$", "$1" + singularRemainder};
     }
 
     /**
@@ -503,7 +1081,7 @@ public class Inflector {
     protected static String replaceAllWithUppercase( String input,
                                                      String regex,
                                                      int groupNumberToUppercase ) {
-        Pattern underscoreAndDotPattern = Pattern.compile(regex);
+        Pattern underscoreAndDotPattern = PATTERNS.computeIfAbsent(regex, Pattern::compile);
         Matcher matcher = underscoreAndDotPattern.matcher(input);
         StringBuffer sb = new StringBuffer();
         while (matcher.find()) {
@@ -513,13 +1091,56 @@ public class Inflector {
         return sb.toString();
     }
 
+    private static boolean isUpper( char c ) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLower( char c ) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit( char c ) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The characters <code>.</code> doesn't match and <code>$</code> matches before.
+     */
+    private static boolean isLineTerminator( char c ) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isDelimiter( char c,
+                                        char[] delimiterChars ) {
+        if (delimiterChars != null) {
+            for (char delimiterChar : delimiterChars) {
+                if (c == delimiterChar) return true;
+            }
+        }
+        return false;
+    }
+
+    private static char delimitedChar( String word,
+                                       int index,
+                                       char[] delimiterChars ) {
+        char c = word.charAt(index);
+        return isDelimiter(c, delimiterChars) ? '_' : c;
+    }
+
+    /**
+     * Whether {@link String#toLowerCase()} and {@link String#toUpperCase()} map ASCII letters one to one in the default
+     * locale, which is not the case in Turkish, Azeri and Lithuanian.
+     */
+    private static boolean isAsciiCaseLocale() {
+        String language = Locale.getDefault().getLanguage();
+        return !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+    }
+
     /**
      * Completely remove all rules within this inflector.
      */
     public void clear() {
-        this.uncountables.clear();
-        this.plurals.clear();
-        this.singulars.clear();
+        update(builder -> builder.clear());
     }
 
     protected void initialize() {
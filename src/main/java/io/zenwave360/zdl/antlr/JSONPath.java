@@ -5,15 +5,40 @@ import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
 
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class JSONPath {
 
     private static final Configuration config = Configuration.defaultConfiguration();
 
+    /**
+     * Max number of compiled expressions kept in memory. When exceeded the cache is cleared and starts over,
+     * which is cheap and keeps lookups lock-free.
+     */
+    static final int MAX_CACHED_PATHS = 1024;
+
+    private static final Map<String, JsonPath> compiledPaths = new ConcurrentHashMap<>();
+
+    public static JsonPath compile(String jsonPath) {
+        var compiled = compiledPaths.get(jsonPath);
+        if (compiled == null) {
+            compiled = JsonPath.compile(jsonPath);
+            if (compiledPaths.size() >= MAX_CACHED_PATHS) {
+                compiledPaths.clear();
+            }
+            compiledPaths.put(jsonPath, compiled);
+        }
+        return compiled;
+    }
+
     public static <T> T get(Object object, String jsonPath) {
+        return get(object, compile(jsonPath));
+    }
+
+    public static <T> T get(Object object, JsonPath jsonPath) {
         try {
-            return (T) JsonPath.using(config).parse(object).read(jsonPath);
+            return (T) jsonPath.read(object, config);
         } catch (PathNotFoundException e) {
             return null;
         }
@@ -24,8 +49,12 @@ class JSONPath {
     }
 
     public static <T> T get(Object object, String jsonPath, T defaultIfNull) {
+        return get(object, compile(jsonPath), defaultIfNull);
+    }
+
+    public static <T> T get(Object object, JsonPath jsonPath, T defaultIfNull) {
         try {
-            var value = JsonPath.using(config).parse(object).read(jsonPath);
+            var value = jsonPath.read(object, config);
             return value != null? (T) value : defaultIfNull;
         } catch (PathNotFoundException e) {
             return defaultIfNull;
@@ -0,0 +1,70 @@
+package io.zenwave360.zdl.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Javadoc text that is only extracted from the source when first read, see {@link ZdlListenerImpl#withLazyJavadoc(boolean)}.
+ * <p>
+ * Keeps the source and the range of the javadoc token until its text is read (with {@link #toString()} or any other
+ * {@link CharSequence} method), then only the text. Instances are thread safe.
+ */
+public final class ZdlJavadoc implements CharSequence {
+
+    private CharStream source;
+    private final int start;
+    private final int stop;
+    private volatile String text;
+
+    /**
+     * @param source the source containing the javadoc token
+     * @param start  index of the first char of the token
+     * @param stop   index of the last char of the token
+     */
+    public ZdlJavadoc(CharStream source, int start, int stop) {
+        this.source = source;
+        this.start = start;
+        this.stop = stop;
+    }
+
+    @Override
+    public String toString() {
+        var text = this.text;
+        if (text == null) {
+            synchronized (this) {
+                text = this.text;
+                if (text == null) {
+                    text = ZdlListenerUtils.javadoc(source.getText(Interval.of(start, stop)));
+                    this.text = text;
+                    source = null;
+                }
+            }
+        }
+        return text;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ZdlJavadoc javadoc && toString().equals(javadoc.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
@@ -21,7 +21,6 @@ import static io.zenwave360.zdl.antlr.ZdlListenerUtils.getLocations;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.getOptionValue;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.getText;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.getValueText;
-import static io.zenwave360.zdl.antlr.ZdlListenerUtils.javadoc;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.kebabCase;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.lowerCamelCase;
 import static io.zenwave360.zdl.antlr.ZdlListenerUtils.pluralize;
@@ -32,11 +31,44 @@ public class ZdlListenerImpl extends ZdlBaseListener {
     ZdlModel model = new ZdlModel();
     Stack<FluentMap> currentStack = new Stack<>();
     String currentCollection = null;
+    boolean trackLocations = true;
+    boolean lazyJavadoc = false;
+
+    /**
+     * Whether to record source locations in the model (enabled by default). Locations are only needed by editors and
+     * problem reporting, so batch code generation can skip computing them.
+     */
+    public ZdlListenerImpl withLocations(boolean trackLocations) {
+        this.trackLocations = trackLocations;
+        if(!trackLocations) {
+            model.disableLocations();
+        }
+        return this;
+    }
+
+    /**
+     * Whether to store javadoc as {@link ZdlJavadoc} values, extracted from the source only when read, instead of as
+     * strings (default <code>false</code>). Most consumers never read javadoc, but they must then not cast it to
+     * <code>String</code>.
+     */
+    public ZdlListenerImpl withLazyJavadoc(boolean lazyJavadoc) {
+        this.lazyJavadoc = lazyJavadoc;
+        return this;
+    }
 
     public ZdlModel getModel() {
         return model;
     }
 
+    private Object javadoc(ParserRuleContext ctx) {
+        // javadoc rules that matched no token (like a suffix javadoc that belongs to the next field) have no children
+        if (ctx == null || !lazyJavadoc || !(ctx.getChild(0) instanceof TerminalNode terminal)) {
+            return ZdlListenerUtils.javadoc(ctx);
+        }
+        var token = terminal.getSymbol();
+        return new ZdlJavadoc(token.getInputStream(), token.getStartIndex(), token.getStopIndex());
+    }
+
     @Override
     public void enterZdl(ZdlParser.ZdlContext ctx) {
 
@@ -87,12 +119,14 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         );
         model.appendTo("apis", name, currentStack.peek());
 
-        var apiLocation = "apis." + name;
-        model.setLocation(apiLocation, getLocations(ctx));
-        model.setLocation(apiLocation + ".name", getLocations(ctx.api_name()));
-        model.setLocation(apiLocation + ".type", getLocations(ctx.api_type()));
-        if(ctx.api_role() != null) {
-            model.setLocation(apiLocation + ".role", getLocations(ctx.api_role()));
+        if(trackLocations) {
+            var apiLocation = "apis." + name;
+            model.setLocation(apiLocation, getLocations(ctx));
+            model.setLocation(apiLocation + ".name", getLocations(ctx.api_name()));
+            model.setLocation(apiLocation + ".type", getLocations(ctx.api_type()));
+            if(ctx.api_role() != null) {
+                model.setLocation(apiLocation + ".role", getLocations(ctx.api_role()));
+            }
         }
     }
 
@@ -122,17 +156,19 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         );
         model.appendTo("plugins", name, currentStack.peek());
 
-        var location = "plugins." + name;
-        model.setLocation(location, getLocations(ctx));
-        model.setLocation(location + ".name", getLocations(ctx.plugin_name()));
-        model.setLocation(location + ".javadoc", getLocations(ctx.javadoc()));
-        if(ctx.plugin_disabled().DISABLED() != null) {
-            model.setLocation(location + ".disabled", getLocations(ctx.plugin_disabled()));
-        }
-        if(ctx.plugin_options() != null) {
-            model.setLocation(location + ".options", getLocations(ctx.plugin_options()));
-            if(ctx.plugin_options().plugin_options_inherit() != null) {
-                model.setLocation(location + ".options.inherit", getLocations(ctx.plugin_options().plugin_options_inherit()));
+        if(trackLocations) {
+            var location = "plugins." + name;
+            model.setLocation(location, getLocations(ctx));
+            model.setLocation(location + ".name", getLocations(ctx.plugin_name()));
+            model.setLocation(location + ".javadoc", getLocations(ctx.javadoc()));
+            if(ctx.plugin_disabled().DISABLED() != null) {
+                model.setLocation(location + ".disabled", getLocations(ctx.plugin_disabled()));
+            }
+            if(ctx.plugin_options() != null) {
+                model.setLocation(location + ".options", getLocations(ctx.plugin_options()));
+                if(ctx.plugin_options().plugin_options_inherit() != null) {
+                    model.setLocation(location + ".options.inherit", getLocations(ctx.plugin_options().plugin_options_inherit()));
+                }
             }
         }
     }
@@ -161,7 +197,7 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         var name = getText(ctx.policie_name());
         var value = ctx.policie_value() != null? getValueText(ctx.policie_value().simple()) : null;
         var aggregate = ((ZdlParser.PoliciesContext) ctx.getParent().getParent()).policy_aggregate();
-        model.appendTo("policies", new FluentMap().with(name, new FluentMap().with("name", name).with("value", value).with("aggregate", aggregate)));
+        model.appendTo("policies", new FluentMap().with(name, new FluentMap().with("name", name).with("value", value).with("aggregate", getText(aggregate))));
         super.enterPolicie_body(ctx);
     }
 
@@ -175,11 +211,13 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         model.appendTo("entities", name, currentStack.peek());
         currentCollection = "entities";
 
-        var entityLocation = currentCollection + "." + name;
-        model.setLocation(entityLocation, getLocations(ctx));
-        model.setLocation(entityLocation + ".name", getLocations(entity.entity_name()));
-        model.setLocation(entityLocation + ".tableName", getLocations(entity.entity_table_name()));
-        model.setLocation(entityLocation + ".body", getLocations(ctx.entity_body()));
+        if(trackLocations) {
+            var entityLocation = currentCollection + "." + name;
+            model.setLocation(entityLocation, getLocations(ctx));
+            model.setLocation(entityLocation + ".name", getLocations(entity.entity_name()));
+            model.setLocation(entityLocation + ".tableName", getLocations(entity.entity_table_name()));
+            model.setLocation(entityLocation + ".body", getLocations(ctx.entity_body()));
+        }
     }
 
     @Override
@@ -187,11 +225,12 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         currentStack.pop();
     }
 
-    private FluentMap processEntity(String name, String javadoc, String tableName) {
+    private FluentMap processEntity(String name, Object javadoc, String tableName) {
         var className = camelCase(name);
         var instanceName = lowerCamelCase(className);
         var kebabCase = kebabCase(name);
-        return new FluentMap()
+        // type and optionsList are added later
+        return new CompactMap(13)
                 .with("name", name)
                 .with("className", className)
                 .with("tableName", tableName != null? tableName : snakeCase(name))
@@ -201,7 +240,7 @@ public class ZdlListenerImpl extends ZdlBaseListener {
                 .with("kebabCase", kebabCase)
                 .with("kebabCasePlural", pluralize(kebabCase))
                 .with("javadoc", javadoc)
-                .with("options", new FluentMap())
+                .with("options", new CompactMap())
                 .with("fields", new FluentMap())
         ;
     }
@@ -213,7 +252,7 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         var value = getOptionValue(ctx.option_value());
         if(!currentStack.isEmpty()) {
             currentStack.peek().appendTo("options", name, value);
-            currentStack.peek().appendToList("optionsList", new FluentMap().with("name", name).with("value", value));
+            currentStack.peek().appendToList("optionsList", new CompactMap(2).with("name", name).with("value", value));
         }
         super.enterOption(ctx);
     }
@@ -232,7 +271,8 @@ public class ZdlListenerImpl extends ZdlBaseListener {
             type = "byte[]";
             isArray = false;
         }
-        var field = new FluentMap()
+        // isComplexType and one of isInput, isOutput or isEvent are added by ZdlModelPostProcessor
+        var field = new CompactMap(12)
                 .with("name", name)
                 .with("type", type)
                 .with("initialValue", initialValue)
@@ -241,25 +281,27 @@ public class ZdlListenerImpl extends ZdlBaseListener {
                 .with("isEnum", isEnum)
                 .with("isEntity", isEntity)
                 .with("isArray", isArray)
-                .with("options", new FluentMap())
+                .with("options", new CompactMap())
                 .with("validations", validations);
         currentStack.peek().appendTo("fields", name, field);
 
-        var entityName =  currentStack.peek().get("name");
-        var entityLocation = currentCollection + "." + entityName + ".fields." + name;
-        model.setLocation(entityLocation, getLocations(ctx));
-        model.setLocation(entityLocation + ".name", getLocations(ctx.field_name()));
-        model.setLocation(entityLocation + ".type", getLocations(ctx.field_type()));
-        for (var fieldValidation : ctx.field_validations()) {
-            model.setLocation(entityLocation + ".validations." + getText(fieldValidation.field_validation_name()), getLocations(fieldValidation));
+        if(trackLocations) {
+            var entityName = currentStack.peek().get("name");
+            var entityLocation = currentCollection + "." + entityName + ".fields." + name;
+            model.setLocation(entityLocation, getLocations(ctx));
+            model.setLocation(entityLocation + ".name", getLocations(ctx.field_name()));
+            model.setLocation(entityLocation + ".type", getLocations(ctx.field_type()));
+            for (var fieldValidation : ctx.field_validations()) {
+                model.setLocation(entityLocation + ".validations." + getText(fieldValidation.field_validation_name()), getLocations(fieldValidation));
+            }
+            model.setLocation(entityLocation + ".javadoc", getLocations(first(ctx.javadoc(), ctx.suffix_javadoc())));
         }
-        model.setLocation(entityLocation + ".javadoc", getLocations(first(ctx.javadoc(), ctx.suffix_javadoc())));
 
         currentStack.push(field);
     }
 
     private Map<String, Object> processFieldValidations(List<ZdlParser.Field_validationsContext> field_validations) {
-        var validations = new FluentMap();
+        var validations = new CompactMap(field_validations != null? field_validations.size() : 0);
         if(field_validations != null) {
             field_validations.forEach(v -> {
                 var name = getText(v.field_validation_name());
@@ -286,7 +328,7 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         var parentEntityFields = ((FluentMap) parentEntity.get("fields"));
         var parentField = new ArrayList<>(parentEntityFields.values()).get(parentEntityFields.size() - 1);
         String entityName = parent.field_type().ID().getText();
-        String entityJavadoc = javadoc(parent.javadoc());
+        Object entityJavadoc = javadoc(parent.javadoc());
         String tableName = getText(parent.entity_table_name());
         var validations = processNestedFieldValidations(ctx.nested_field_validations());
         ((FluentMap) parentField).appendTo("validations", validations);
@@ -298,13 +340,15 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         }
         model.appendTo(currentCollection, entityName, currentStack.peek());
 
-        var entityLocation = currentCollection + "." + entityName;
-        var startLocation = getLocations(parent.field_type());
-        var endLocation = getLocations(ctx);
-        model.setLocation(entityLocation, mergeLocations(startLocation, endLocation));
-        model.setLocation(entityLocation + ".name", getLocations(parent.field_type()));
-        model.setLocation(entityLocation + ".tableName", getLocations(parent.entity_table_name()));
-        model.setLocation(entityLocation + ".body", getLocations(ctx));
+        if(trackLocations) {
+            var entityLocation = currentCollection + "." + entityName;
+            var startLocation = getLocations(parent.field_type());
+            var endLocation = getLocations(ctx);
+            model.setLocation(entityLocation, mergeLocations(startLocation, endLocation));
+            model.setLocation(entityLocation + ".name", getLocations(parent.field_type()));
+            model.setLocation(entityLocation + ".tableName", getLocations(parent.entity_table_name()));
+            model.setLocation(entityLocation + ".body", getLocations(ctx));
+        }
     }
 
     private int[] mergeLocations(int[] startLocation, int[] endLocation) {
@@ -340,10 +384,12 @@ public class ZdlListenerImpl extends ZdlBaseListener {
                 .with("comment", javadoc));
         model.appendTo("enums", name, currentStack.peek());
 
-        var entityLocation = "enums." + name;
-        model.setLocation(entityLocation, getLocations(ctx));
-        model.setLocation(entityLocation + ".name", getLocations(ctx.enum_name()));
-        model.setLocation(entityLocation + ".body", getLocations(ctx.enum_body()));
+        if(trackLocations) {
+            var entityLocation = "enums." + name;
+            model.setLocation(entityLocation, getLocations(ctx));
+            model.setLocation(entityLocation + ".name", getLocations(ctx.enum_name()));
+            model.setLocation(entityLocation + ".body", getLocations(ctx.enum_body()));
+        }
     }
 
     @Override
@@ -375,7 +421,9 @@ public class ZdlListenerImpl extends ZdlBaseListener {
 
         var relationship = new FluentMap().with("type", relationshipType).with("name", relationshipName);
         var location = "relationships." + relationshipName;
-        model.setLocation(location, getLocations(ctx));
+        if(trackLocations) {
+            model.setLocation(location, getLocations(ctx));
+        }
 
         if(ctx.relationship_from() != null && ctx.relationship_from().relationship_definition() != null) {
             var from = getText(ctx.relationship_from().relationship_definition().relationship_entity_name());
@@ -385,12 +433,14 @@ public class ZdlListenerImpl extends ZdlBaseListener {
             var isInjectedFieldInFromRequired = isRequired(ctx.relationship_from().relationship_definition());
             var injectedFieldInFromDescription = getText(ctx.relationship_from().relationship_definition().relationship_description_field());
             var relationshipValidations = relationshipValidations(ctx.relationship_from().relationship_definition());
-            model.setLocation(location + ".from.entity", getLocations(ctx.relationship_from().relationship_definition().relationship_entity_name()));
-            model.setLocation(location + ".from.field", getLocations(ctx.relationship_from().relationship_definition().relationship_field_name()));
-            if (ctx.relationship_from().relationship_definition().relationship_field_validations() != null) {
-                model.setLocation(location + ".from.validations", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations()));
-                model.setLocation(location + ".from.validations.min", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations().relationship_field_min()));
-                model.setLocation(location + ".from.validations.max", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations().relationship_field_max()));
+            if(trackLocations) {
+                model.setLocation(location + ".from.entity", getLocations(ctx.relationship_from().relationship_definition().relationship_entity_name()));
+                model.setLocation(location + ".from.field", getLocations(ctx.relationship_from().relationship_definition().relationship_field_name()));
+                if (ctx.relationship_from().relationship_definition().relationship_field_validations() != null) {
+                    model.setLocation(location + ".from.validations", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations()));
+                    model.setLocation(location + ".from.validations.min", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations().relationship_field_min()));
+                    model.setLocation(location + ".from.validations.max", getLocations(ctx.relationship_from().relationship_definition().relationship_field_validations().relationship_field_max()));
+                }
             }
             relationship.with("from", from)
                     .with("commentInFrom", commentInFrom)
@@ -409,12 +459,14 @@ public class ZdlListenerImpl extends ZdlBaseListener {
             var isInjectedFieldInToRequired = isRequired(ctx.relationship_to().relationship_definition());
             var injectedFieldInToDescription = getText(ctx.relationship_to().relationship_definition().relationship_description_field());
             var relationshipValidations = relationshipValidations(ctx.relationship_to().relationship_definition());
-            model.setLocation(location + ".to.entity", getLocations(ctx.relationship_to().relationship_definition().relationship_entity_name()));
-            model.setLocation(location + ".to.field", getLocations(ctx.relationship_to().relationship_definition().relationship_field_name()));
-            if (ctx.relationship_to().relationship_definition().relationship_field_validations() != null) {
-                model.setLocation(location + ".to.validations", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations()));
-                model.setLocation(location + ".to.validations.min", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations().relationship_field_min()));
-                model.setLocation(location + ".to.validations.max", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations().relationship_field_max()));
+            if(trackLocations) {
+                model.setLocation(location + ".to.entity", getLocations(ctx.relationship_to().relationship_definition().relationship_entity_name()));
+                model.setLocation(location + ".to.field", getLocations(ctx.relationship_to().relationship_definition().relationship_field_name()));
+                if (ctx.relationship_to().relationship_definition().relationship_field_validations() != null) {
+                    model.setLocation(location + ".to.validations", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations()));
+                    model.setLocation(location + ".to.validations.min", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations().relationship_field_min()));
+                    model.setLocation(location + ".to.validations.max", getLocations(ctx.relationship_to().relationship_definition().relationship_field_validations().relationship_field_max()));
+                }
             }
             relationship.with("to", to)
                     .with("commentInTo", commentInTo)
@@ -515,11 +567,13 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         );
         model.appendTo("aggregates", aggregateName, currentStack.peek());
 
-        var name =  currentStack.peek().get("name");
-        var location = "aggregates." + name;
-        model.setLocation(location, getLocations(ctx));
-        model.setLocation(location + ".name", getLocations(ctx.aggregate_name()));
-        model.setLocation(location + ".aggregateRoot", getLocations(ctx.aggregate_root()));
+        if(trackLocations) {
+            var name = currentStack.peek().get("name");
+            var location = "aggregates." + name;
+            model.setLocation(location, getLocations(ctx));
+            model.setLocation(location + ".name", getLocations(ctx.aggregate_name()));
+            model.setLocation(location + ".aggregateRoot", getLocations(ctx.aggregate_root()));
+        }
     }
 
     @Override
@@ -548,9 +602,11 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         currentStack.peek().appendTo("commands", commandName, method);
         currentStack.push(method);
 
-        model.setLocation(location, getLocations(ctx));
-        model.setLocation(location + ".name", getLocations(ctx.aggregate_command_name()));
-        model.setLocation(location + ".parameter", getLocations(ctx.aggregate_command_parameter()));
+        if(trackLocations) {
+            model.setLocation(location, getLocations(ctx));
+            model.setLocation(location + ".name", getLocations(ctx.aggregate_command_name()));
+            model.setLocation(location + ".parameter", getLocations(ctx.aggregate_command_parameter()));
+        }
     }
 
     @Override
@@ -572,11 +628,13 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         );
         model.appendTo("services", serviceName, currentStack.peek());
 
-        var name =  currentStack.peek().get("name");
-        var location = "services." + name;
-        model.setLocation(location, getLocations(ctx));
-        model.setLocation(location + ".name", getLocations(ctx.service_name()));
-        model.setLocation(location + ".aggregates", getLocations(ctx.service_aggregates()));
+        if(trackLocations) {
+            var name = currentStack.peek().get("name");
+            var location = "services." + name;
+            model.setLocation(location, getLocations(ctx));
+            model.setLocation(location + ".name", getLocations(ctx.service_name()));
+            model.setLocation(location + ".aggregates", getLocations(ctx.service_aggregates()));
+        }
     }
 
     @Override
@@ -617,10 +675,12 @@ public class ZdlListenerImpl extends ZdlBaseListener {
         currentStack.peek().appendTo("methods", methodName, method);
         currentStack.push(method);
 
-        model.setLocation(location, getLocations(ctx));
-        model.setLocation(location + ".name", getLocations(ctx.service_method_name()));
-        model.setLocation(location + ".parameter", getLocations(ctx.service_method_parameter()));
-        model.setLocation(location + ".returnType", getLocations(ctx.service_method_return()));
+        if(trackLocations) {
+            model.setLocation(location, getLocations(ctx));
+            model.setLocation(location + ".name", getLocations(ctx.service_method_name()));
+            model.setLocation(location + ".parameter", getLocations(ctx.service_method_parameter()));
+            model.setLocation(location + ".returnType", getLocations(ctx.service_method_return()));
+        }
     }
 
     @Override
@@ -629,7 +689,9 @@ public class ZdlListenerImpl extends ZdlBaseListener {
     }
 
     private List<Object> getServiceMethodEvents(String location, ZdlParser.With_eventsContext ctx) {
-        model.setLocation(location + ".withEvents", getLocations(ctx));
+        if(trackLocations) {
+            model.setLocation(location + ".withEvents", getLocations(ctx));
+        }
         var events = new ArrayList<>();
         if (ctx != null) {
             AtomicInteger i = new AtomicInteger(0);
@@ -637,17 +699,21 @@ public class ZdlListenerImpl extends ZdlBaseListener {
                 if (event.with_events_event() != null) {
                     var eventName = getText(event.with_events_event());
                     events.add(eventName);
-                    model.setLocation(location + ".withEvents." + i.get(), getLocations(event.with_events_event()));
-                    model.setLocation(location + ".withEvents." + eventName, getLocations(event.with_events_event()));
+                    if(trackLocations) {
+                        model.setLocation(location + ".withEvents." + i.get(), getLocations(event.with_events_event()));
+                        model.setLocation(location + ".withEvents." + eventName, getLocations(event.with_events_event()));
+                    }
                 }
                 if (event.with_events_events_or() != null) {
                     var orEvents = event.with_events_events_or().with_events_event().stream().map(ParseTree::getText).collect(Collectors.toList());
                     events.add(orEvents);
-                    int j = 0;
-                    for (var eventContext: event.with_events_events_or().with_events_event()) {
-                        model.setLocation(location + ".withEvents." + i.get() + "." + j, getLocations(eventContext));
-                        model.setLocation(location + ".withEvents." + getText(eventContext), getLocations(eventContext));
-                        j++;
+                    if(trackLocations) {
+                        int j = 0;
+                        for (var eventContext: event.with_events_events_or().with_events_event()) {
+                            model.setLocation(location + ".withEvents." + i.get() + "." + j, getLocations(eventContext));
+                            model.setLocation(location + ".withEvents." + getText(eventContext), getLocations(eventContext));
+                            j++;
+                        }
                     }
                 }
                 i.incrementAndGet();
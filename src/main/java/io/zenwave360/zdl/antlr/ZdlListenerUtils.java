@@ -12,8 +12,6 @@ import java.util.Map;
 
 class ZdlListenerUtils {
 
-    static final Inflector inflector = Inflector.getInstance();
-
     static String getText(ParserRuleContext ctx) {
         return ctx != null? ctx.getText() : null;
     }
@@ -109,12 +107,32 @@ class ZdlListenerUtils {
         return first(object, array, simple, true);
     }
 
+    /**
+     * Removes the quotes and decodes the escapes of the grammar (<code>\' \" \\ \/ \b \f \n \r \t</code>).
+     */
     static String unquote(String text, String quote) {
-        var escape = "\\\\";
-        return text
-                .replaceAll("^" + quote, "")
-                .replaceAll(escape + quote, quote)
-                .replaceAll(quote + "$", "");
+        int start = text.startsWith(quote) ? quote.length() : 0;
+        int end = text.length() - quote.length() >= start && text.endsWith(quote) ? text.length() - quote.length() : text.length();
+        int escape = text.indexOf('\\', start);
+        if (escape < 0 || escape >= end) {
+            return text.substring(start, end);
+        }
+        var unquoted = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = switch (text.charAt(++i)) {
+                    case 'b' -> '\b';
+                    case 'f' -> '\f';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case 't' -> '\t';
+                    default -> text.charAt(i);
+                };
+            }
+            unquoted.append(c);
+        }
+        return unquoted.toString();
     }
 
     static Object getObject(ZdlParser.ObjectContext ctx) {
@@ -161,22 +179,22 @@ class ZdlListenerUtils {
     }
 
     static String pluralize(String name) {
-        return inflector.pluralize(name);
+        return Inflector.getInstance().pluralize(name);
     }
 
     static String camelCase(String name) {
-        return inflector.upperCamelCase(name);
+        return Inflector.getInstance().upperCamelCase(name);
     }
 
     static String lowerCamelCase(String name) {
-        return inflector.lowerCamelCase(name);
+        return Inflector.getInstance().lowerCamelCase(name);
     }
     static String kebabCase(String name) {
-        return inflector.kebabCase(name);
+        return Inflector.getInstance().kebabCase(name);
     }
 
     static String snakeCase(String name) {
-        return inflector.underscore(name);
+        return Inflector.getInstance().underscore(name);
     }
 
     @SafeVarargs
@@ -193,11 +211,42 @@ class ZdlListenerUtils {
         if (javadoc == null) {
             return null;
         }
-        return getText((ParserRuleContext) javadoc)
-                .replaceAll("^/\\*\\*", "")
-                .replaceAll("\\*/\\s*$", "")
-                .replaceAll("^\\s*\\* ", "")
-                .trim();
+        return javadoc(getText((ParserRuleContext) javadoc));
+    }
+
+    static String javadoc(String text) {
+        // removes the leading "/**", the trailing "*/", a "* " starting the first line and the surrounding whitespace
+        int start = text.startsWith("/**") ? 3 : 0;
+        int end = text.length();
+        while (end > start && isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - 2 >= start && text.startsWith("*/", end - 2)) {
+            end -= 2;
+        } else {
+            end = text.length();
+        }
+        int firstLine = start;
+        while (firstLine < end && isWhitespace(text.charAt(firstLine))) {
+            firstLine++;
+        }
+        if (firstLine + 2 <= end && text.startsWith("* ", firstLine)) {
+            start = firstLine + 2;
+        }
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+
+    /**
+     * Same as <code>\s</code> in regular expressions.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     static int[] getLocations(ParserRuleContext ctx) {
@@ -222,6 +271,7 @@ class ZdlListenerUtils {
     }
 
     static List<Map> createCRUDMethods(String serviceName, String entity) {
+        var inflector = Inflector.getInstance();
         var path = "/" + inflector.kebabCase(inflector.pluralize(entity.toLowerCase()));
         var entityIdPath = path + "/{"+ inflector.lowerCamelCase(entity) + "Id}";
         var crudMethods = new ArrayList<Map>();
@@ -0,0 +1,112 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Static interval tree over the <code>[startChar, stopChar, startLine, startColumn, endLine, endColumn]</code> location
+ * arrays of a {@link ZdlModel}, answering "which path encloses this line/column" queries in O(log n + k), being k the
+ * number of enclosing ranges (the nesting depth at that position).
+ * <p>
+ * Intervals are sorted by start position and laid out as an implicit balanced tree (the middle element of each range
+ * is the node), each node keeping the max end position of its subtree.
+ */
+class ZdlLocationIndex {
+
+    private final ZdlLocations.Store store;
+    private final int size;
+    private final int[] entries;
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] spans;
+    private final long[] maxEnds;
+
+    private ZdlLocationIndex(ZdlLocations.Store store) {
+        this.store = store;
+        this.size = store.size();
+        var sorted = new Integer[size];
+        for (int entry = 0; entry < size; entry++) {
+            sorted[entry] = entry;
+        }
+        Arrays.sort(sorted, (a, b) -> Long.compare(start(store, a), start(store, b)));
+        this.entries = new int[size];
+        this.starts = new long[size];
+        this.ends = new long[size];
+        this.spans = new int[size];
+        for (int i = 0; i < size; i++) {
+            int entry = sorted[i];
+            entries[i] = entry;
+            starts[i] = start(store, entry);
+            ends[i] = pack(store.position(entry, 4), store.position(entry, 5));
+            spans[i] = store.position(entry, 1) - store.position(entry, 0);
+        }
+        this.maxEnds = new long[size];
+        buildMaxEnds(0, size - 1);
+    }
+
+    static ZdlLocationIndex of(Map<String, Object> locations) {
+        if (locations instanceof ZdlLocations zdlLocations) {
+            return new ZdlLocationIndex(zdlLocations.store());
+        }
+        var store = new ZdlLocations.Store();
+        for (var entry : locations.entrySet()) {
+            if (entry.getValue() instanceof int[] position && position.length == 6) {
+                store.put(entry.getKey(), position);
+            }
+        }
+        return new ZdlLocationIndex(store);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the path of the smallest range (in chars) enclosing the given position, the first one registered on ties.
+     */
+    String find(int line, int character) {
+        long position = pack(line, character);
+        int best = find(0, size - 1, position, -1);
+        return best >= 0 ? store.path(entries[best]) : null;
+    }
+
+    private int find(int lo, int hi, long position, int best) {
+        if (lo > hi) {
+            return best;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < position) {
+            return best; // no interval in this subtree reaches the position
+        }
+        best = find(lo, mid - 1, position, best);
+        if (starts[mid] > position) {
+            return best; // intervals on the right start even later
+        }
+        if (ends[mid] >= position && isBetter(mid, best)) {
+            best = mid;
+        }
+        return find(mid + 1, hi, position, best);
+    }
+
+    private boolean isBetter(int candidate, int best) {
+        return best < 0 || spans[candidate] < spans[best] || (spans[candidate] == spans[best] && entries[candidate] < entries[best]);
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo > hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long maxEnd = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid - 1), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    private static long start(ZdlLocations.Store store, int entry) {
+        return pack(store.position(entry, 2), store.position(entry, 3));
+    }
+
+    private static long pack(int line, int character) {
+        return ((long) line << 32) | (character & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,483 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Source locations of a {@link ZdlModel}: a map of dotted paths (like <code>entities.Customer.fields.name</code>) to
+ * <code>[startChar, stopChar, startLine, startColumn, endLine, endColumn]</code> arrays.
+ * <p>
+ * Locations outnumber any other model content, so they are kept in a columnar {@link Store}: path segments are
+ * interned in a trie and positions are packed in a single <code>int[]</code> arena. Point lookups (<code>get</code>,
+ * <code>containsKey</code>, <code>size</code>) are answered from the store; the <code>Map</code> entries are only
+ * materialized when a consumer iterates or modifies this map in other ways (for instance when serializing the model to
+ * JSON), and from then on it behaves as a plain {@link FluentMap}.
+ * <p>
+ * Locations can also be deferred until first read, see {@link #ZdlLocations(Supplier)}.
+ * <p>
+ * Reading is thread safe, as for any other model content, even when it builds the store or materializes the entries:
+ * both are done under a lock and published through a volatile field, entries being put in the map before readers stop
+ * using the store. Modifying is not.
+ */
+class ZdlLocations extends FluentMap {
+
+    private transient volatile Store store;
+    private transient volatile Supplier<Store> deferred;
+
+    ZdlLocations() {
+        this.store = new Store();
+    }
+
+    /**
+     * Locations built by the given supplier the first time they are read or modified.
+     */
+    ZdlLocations(Supplier<Store> deferred) {
+        this.deferred = deferred;
+    }
+
+    private void resolve() {
+        if (deferred != null) {
+            synchronized (this) {
+                if (deferred != null) {
+                    store = deferred.get();
+                    deferred = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the compact store with the current locations, or a new one built from the map entries if they have already
+     * been materialized.
+     */
+    Store store() {
+        resolve();
+        var store = this.store;
+        if (store != null) {
+            return store;
+        }
+        var copy = new Store();
+        for (var entry : super.entrySet()) {
+            if (entry.getValue() instanceof int[] position && position.length == 6) {
+                copy.put(entry.getKey(), position);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Puts all locations of the given store, in its order, passing each position through <code>adjust</code> first.
+     */
+    void putAll(Store other, Consumer<int[]> adjust) {
+        resolve();
+        if (store != null) {
+            store.putAll(other, adjust);
+            return;
+        }
+        for (int entry = 0; entry < other.size(); entry++) {
+            var position = other.position(entry);
+            adjust.accept(position);
+            super.put(other.path(entry), position);
+        }
+    }
+
+    boolean isMaterialized() {
+        resolve();
+        return store == null;
+    }
+
+    private void materialize() {
+        resolve();
+        if (store != null) {
+            synchronized (this) {
+                var store = this.store;
+                if (store != null) {
+                    // concurrent readers keep using the store until all entries are in place
+                    for (int entry = 0; entry < store.size(); entry++) {
+                        super.put(store.path(entry), store.position(entry));
+                    }
+                    this.store = null;
+                }
+            }
+        }
+    }
+
+    private Object writeReplace() {
+        materialize();
+        return this;
+    }
+
+    @Override
+    public int size() {
+        resolve();
+        var store = this.store;
+        return store != null ? store.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        resolve();
+        var store = this.store;
+        if (store != null) {
+            return key instanceof String path && store.find(path) >= 0;
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        resolve();
+        var store = this.store;
+        if (store != null) {
+            int entry = key instanceof String path ? store.find(path) : -1;
+            return entry >= 0 ? store.position(entry) : null;
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        resolve();
+        if (store != null) {
+            var value = get(key);
+            return value != null ? value : defaultValue;
+        }
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        resolve();
+        if (store != null && key != null && value instanceof int[] position && position.length == 6) {
+            return store.put(key, position);
+        }
+        materialize();
+        return super.put(key, value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        materialize();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        materialize();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        materialize();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        materialize();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        materialize();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        materialize();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        materialize();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        materialize();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        materialize();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        materialize();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        if (store != null || deferred != null) {
+            deferred = null;
+            store = new Store();
+        }
+        super.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        materialize();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        materialize();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        materialize();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        materialize();
+        super.forEach(action);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        materialize();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        materialize();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
+
+    /**
+     * Columnar storage of locations: interned path segments, a trie of paths and one packed <code>int[]</code> with six
+     * values per location, in insertion order.
+     */
+    static final class Store {
+
+        private static final int POSITION_SIZE = 6;
+
+        private final Map<String, Integer> segmentIds = new HashMap<>();
+        private String[] segments = new String[16];
+
+        // path trie, node 0 is the root and it's never a child, so 0 marks empty slots in the children table
+        private int[] nodeParent = new int[32];
+        private int[] nodeSegment = new int[32];
+        private int[] nodeEntry = new int[32];
+        private int nodeCount = 1;
+        private long[] childKeys = new long[64];
+        private int[] childNodes = new int[64];
+
+        private int[] entryNode = new int[16];
+        private int[] positions = new int[16 * POSITION_SIZE];
+        private int size;
+
+        Store() {
+            nodeEntry[0] = -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String path(int entry) {
+            int node = entryNode[entry];
+            int depth = 0;
+            int length = -1;
+            for (int n = node; n != 0; n = nodeParent[n]) {
+                depth++;
+                length += segments[nodeSegment[n]].length() + 1;
+            }
+            if (depth == 1) {
+                return segments[nodeSegment[node]];
+            }
+            var path = new char[length];
+            int end = length;
+            for (int n = node; n != 0; n = nodeParent[n]) {
+                var segment = segments[nodeSegment[n]];
+                end -= segment.length();
+                segment.getChars(0, segment.length(), path, end);
+                if (end > 0) {
+                    path[--end] = '.';
+                }
+            }
+            return new String(path);
+        }
+
+        int[] position(int entry) {
+            int offset = entry * POSITION_SIZE;
+            return Arrays.copyOfRange(positions, offset, offset + POSITION_SIZE);
+        }
+
+        int position(int entry, int index) {
+            return positions[entry * POSITION_SIZE + index];
+        }
+
+        /**
+         * Returns the entry index for the given path, or -1 if not present.
+         */
+        int find(String path) {
+            int node = node(path, false);
+            return node > 0 ? nodeEntry[node] : -1;
+        }
+
+        int[] put(String path, int[] position) {
+            return put(node(path, true), position);
+        }
+
+        /**
+         * Puts all entries of another store, mapping its trie nodes to this one's without building their paths.
+         */
+        void putAll(Store other, Consumer<int[]> adjust) {
+            var nodes = new int[other.nodeCount];
+            for (int node = 1; node < other.nodeCount; node++) {
+                // parents are always created before their children
+                nodes[node] = child(nodes[other.nodeParent[node]], other.segments[other.nodeSegment[node]], true);
+            }
+            for (int entry = 0; entry < other.size; entry++) {
+                var position = other.position(entry);
+                adjust.accept(position);
+                put(nodes[other.entryNode[entry]], position);
+            }
+        }
+
+        private int[] put(int node, int[] position) {
+            int entry = nodeEntry[node];
+            int[] previous = null;
+            if (entry >= 0) {
+                previous = position(entry);
+            } else {
+                entry = size++;
+                if (entry == entryNode.length) {
+                    entryNode = Arrays.copyOf(entryNode, entry * 2);
+                    positions = Arrays.copyOf(positions, entry * 2 * POSITION_SIZE);
+                }
+                entryNode[entry] = node;
+                nodeEntry[node] = entry;
+            }
+            System.arraycopy(position, 0, positions, entry * POSITION_SIZE, POSITION_SIZE);
+            return previous;
+        }
+
+        private int node(String path, boolean create) {
+            int node = 0;
+            int start = 0;
+            while (true) {
+                int end = path.indexOf('.', start);
+                var segment = path.substring(start, end < 0 ? path.length() : end);
+                node = child(node, segment, create);
+                if (node < 0 || end < 0) {
+                    return node;
+                }
+                start = end + 1;
+            }
+        }
+
+        private int child(int parent, String segment, boolean create) {
+            var segmentId = segmentIds.get(segment);
+            if (segmentId == null) {
+                if (!create) {
+                    return -1;
+                }
+                segmentId = segmentIds.size();
+                if (segmentId == segments.length) {
+                    segments = Arrays.copyOf(segments, segmentId * 2);
+                }
+                segments[segmentId] = segment;
+                segmentIds.put(segment, segmentId);
+            }
+            long key = ((long) parent << 32) | segmentId;
+            int mask = childKeys.length - 1;
+            int slot = hash(key) & mask;
+            while (childNodes[slot] != 0) {
+                if (childKeys[slot] == key) {
+                    return childNodes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!create) {
+                return -1;
+            }
+            int node = nodeCount++;
+            if (node == nodeParent.length) {
+                nodeParent = Arrays.copyOf(nodeParent, node * 2);
+                nodeSegment = Arrays.copyOf(nodeSegment, node * 2);
+                nodeEntry = Arrays.copyOf(nodeEntry, node * 2);
+            }
+            nodeParent[node] = parent;
+            nodeSegment[node] = segmentId;
+            nodeEntry[node] = -1;
+            childKeys[slot] = key;
+            childNodes[slot] = node;
+            if (nodeCount * 2 > childKeys.length) {
+                rehashChildren();
+            }
+            return node;
+        }
+
+        private void rehashChildren() {
+            var keys = new long[childKeys.length * 2];
+            var nodes = new int[childNodes.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < childKeys.length; i++) {
+                if (childNodes[i] != 0) {
+                    int slot = hash(childKeys[i]) & mask;
+                    while (nodes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = childKeys[i];
+                    nodes[slot] = childNodes[i];
+                }
+            }
+            childKeys = keys;
+            childNodes = nodes;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package io.zenwave360.zdl.antlr;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 public class ZdlModel extends FluentMap {
+
+    private transient ZdlLocationIndex locationIndex;
+    private transient int locationIndexSize;
+    private transient Map locationIndexLocations;
+    private transient boolean locationsDisabled;
+    private transient List<Map.Entry<String, Map>> sourceLocations;
+
     public ZdlModel() {
         put("imports", new ArrayList<>());
         put("config", new FluentMap());
@@ -18,7 +24,7 @@ public class ZdlModel extends FluentMap {
         put("inputs", new FluentMap());
         put("outputs", new FluentMap());
         put("events", new FluentMap());
-        put("locations", new FluentMap());
+        put("locations", new ZdlLocations());
         put("problems", new ArrayList<>());
     }
 
@@ -59,13 +65,42 @@ public class ZdlModel extends FluentMap {
         return (List) get("problems");
     }
 
+    /**
+     * Typed, read-only snapshot of this model as it is now, see {@link ZdlTypedModel}.
+     */
+    public ZdlTypedModel typed() {
+        return ZdlTypedModel.of(this);
+    }
+
+    void disableLocations() {
+        locationsDisabled = true;
+    }
+
+    boolean isLocationsDisabled() {
+        return locationsDisabled;
+    }
+
     public FluentMap setLocation(String location, int[] locations) {
         if(locations == null || locations.length != 6) {
             return this;
         }
+        locationIndex = null;
         return appendTo("locations", location, locations);
     }
 
+    /**
+     * Adds the locations of another source merged into this model without them, like an imported file, so problems
+     * found in its declarations are reported with the source name and their location in that source. Sources added
+     * later win over earlier ones, as their declarations do when merged.
+     */
+    public ZdlModel withSourceLocations(String source, Map locations) {
+        if(sourceLocations == null) {
+            sourceLocations = new ArrayList<>();
+        }
+        sourceLocations.add(0, Map.entry(source, locations));
+        return this;
+    }
+
     public void clearProblems() {
         if(getProblems() != null) {
             getProblems().clear();
@@ -81,32 +116,46 @@ public class ZdlModel extends FluentMap {
 
     private Map problem(String path, String value, String error) {
         int[] location = getLocation(path);
-        return Map.of(
-                "path", path,
-                "location", location,
-                "value", value,
-                "message", String.format(error, value)
-        );
+        String source = null;
+        if(location == null && sourceLocations != null) {
+            for (var locations : sourceLocations) {
+                location = (int[]) locations.getValue().get(path);
+                if(location != null) {
+                    source = locations.getKey();
+                    break;
+                }
+            }
+        }
+        if(location == null && !locationsDisabled) {
+            // only problems with a source location are reported, unless locations are not being tracked at all
+            throw new IllegalArgumentException("no location found for " + path);
+        }
+        var problem = new FluentMap().with("path", path);
+        if(source != null) {
+            problem.with("source", source);
+        }
+        return problem
+                .with("location", location)
+                .with("value", value)
+                .with("message", String.format(error, value));
     }
 
     private int[] getLocation(String path) {
-        return JSONPath.get(this, "$.locations.['" + path + "']");
+        var locations = getLocations();
+        return locations != null? (int[]) locations.get(path) : null;
     }
 
     public String getLocation(int line, int character) {
-        var locations = getLocations().entrySet().stream().filter(k -> {
-            var position = (int[]) k.getValue();
-            var lineStart = position[2];
-            var characterStart = position[3];
-            var lineEnd = position[4];
-            var characterEnd = position[5];
-            return lineStart <= line && line <= lineEnd && (line != lineStart || characterStart <= character) && (line != lineEnd || character <= characterEnd);
-        }).toList();
-        // return the one with the closer location which is the one with the smaller range
-        var location = locations.stream().min(Comparator.comparingInt(k -> {
-            var position = (int[]) k.getValue();
-            return position[1] - position[0];
-        })).map(Map.Entry::getKey).orElse(null);
-        return location;
+        var locations = getLocations();
+        if(locations == null) {
+            return null;
+        }
+        if(locationIndex == null || locationIndexSize != locations.size() || locationIndexLocations != locations) {
+            locationIndex = ZdlLocationIndex.of(locations);
+            locationIndexSize = locations.size();
+            locationIndexLocations = locations;
+        }
+        // returns the closer location which is the one with the smaller range
+        return locationIndex.find(line, character);
     }
 }
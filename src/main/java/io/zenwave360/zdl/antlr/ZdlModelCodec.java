@@ -0,0 +1,405 @@
+package io.zenwave360.zdl.antlr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for {@link ZdlModel}, much smaller and faster to load than JSON.
+ * <p>
+ * A header with the format version and the model flags (like whether locations were tracked) is followed by the model
+ * entries. Values are written depth first, each one prefixed by a tag byte. Every string is written once and referenced
+ * by its index in a string table afterwards, so repeated names (types, option names, path segments) take one or two
+ * bytes.
+ * Maps and lists seen before are written as references too, preserving the sharing between collections (like
+ * <code>allEntitiesAndEnums</code> and <code>entities</code>). Locations are written as path segments plus varints, each
+ * position relative to the previous one.
+ * <p>
+ * Maps are read back as {@link FluentMap}s (right-sized {@link CompactMap}s when small), in the same iteration order
+ * they were written, lists as {@link ArrayList}s and locations as a compact {@link ZdlLocations} store.
+ */
+public class ZdlModelCodec {
+
+    private static final byte[] MAGIC = {'Z', 'D', 'L', 'M'};
+    private static final int VERSION = 2;
+
+    private static final int LOCATIONS_DISABLED = 1;
+
+    /**
+     * Maps and lists nested deeper than this are not from a model (models nest a few levels), and reading them
+     * recursively could overflow the stack.
+     */
+    private static final int MAX_DEPTH = 256;
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int STRING = 3;
+    private static final int STRING_REF = 4;
+    private static final int INTEGER = 5;
+    private static final int LONG = 6;
+    private static final int DOUBLE = 7;
+    private static final int BIG_DECIMAL = 8;
+    private static final int MAP = 9;
+    private static final int LIST = 10;
+    private static final int REF = 11;
+    private static final int INT_ARRAY = 12;
+    private static final int LOCATIONS = 13;
+
+    private ZdlModelCodec() {
+    }
+
+    public static byte[] encode(ZdlModel model) {
+        var writer = new Writer();
+        writer.bytes(MAGIC);
+        writer.varint(VERSION);
+        writer.varint(model.isLocationsDisabled() ? LOCATIONS_DISABLED : 0);
+        writer.mapEntries(model);
+        return Arrays.copyOf(writer.buffer, writer.size);
+    }
+
+    /**
+     * @throws IOException if the content is not a model in this format (or in another version of it), or is truncated or
+     *                     corrupted
+     */
+    public static ZdlModel decode(byte[] content) throws IOException {
+        try {
+            var reader = new Reader(content);
+            if (!Arrays.equals(MAGIC, reader.bytes(MAGIC.length)) || reader.varint() != VERSION) {
+                throw new IOException("Not a ZDL model in format version " + VERSION);
+            }
+            long flags = reader.varint();
+            var model = new ZdlModel();
+            model.clear();
+            if ((flags & LOCATIONS_DISABLED) != 0) {
+                model.disableLocations();
+            }
+            reader.mapEntries(model, reader.length(2));
+            return model;
+        } catch (RuntimeException e) {
+            // anything a corrupted content can make the reader fail with: bad indexes, casts, numbers...
+            throw new IOException("Corrupted ZDL model", e);
+        }
+    }
+
+    public static void write(ZdlModel model, OutputStream out) throws IOException {
+        out.write(encode(model));
+    }
+
+    public static ZdlModel read(InputStream in) throws IOException {
+        return decode(in.readAllBytes());
+    }
+
+    private static class Writer {
+        byte[] buffer = new byte[4096];
+        int size;
+        final Map<String, Integer> strings = new HashMap<>();
+        final Map<Object, Integer> objects = new IdentityHashMap<>();
+
+        void value(Object value) {
+            if (value == null) {
+                tag(NULL);
+            } else if (value instanceof String string) {
+                string(string);
+            } else if (value instanceof CharSequence text) {
+                string(text.toString());
+            } else if (value instanceof Boolean bool) {
+                tag(bool ? TRUE : FALSE);
+            } else if (value instanceof Integer number) {
+                tag(INTEGER);
+                zigzag(number);
+            } else if (value instanceof Long number) {
+                tag(LONG);
+                zigzag(number);
+            } else if (value instanceof Double number) {
+                tag(DOUBLE);
+                fixed64(Double.doubleToLongBits(number));
+            } else if (value instanceof BigDecimal number) {
+                tag(BIG_DECIMAL);
+                string(number.toString());
+            } else if (value instanceof int[] array) {
+                tag(INT_ARRAY);
+                varint(array.length);
+                for (int element : array) {
+                    zigzag(element);
+                }
+            } else if (value instanceof Map || value instanceof List) {
+                // empty collections may be shared singletons (like List.of()), so they are never referenced
+                boolean empty = value instanceof Map<?, ?> map ? map.isEmpty() : ((List<?>) value).isEmpty();
+                var ref = empty ? null : objects.putIfAbsent(value, objects.size());
+                if (ref != null) {
+                    tag(REF);
+                    varint(ref);
+                } else if (value instanceof ZdlLocations locations) {
+                    tag(LOCATIONS);
+                    locations(locations.store());
+                } else if (value instanceof Map map) {
+                    tag(MAP);
+                    mapEntries(map);
+                } else {
+                    var list = (List<?>) value;
+                    tag(LIST);
+                    varint(list.size());
+                    for (var element : list) {
+                        value(element);
+                    }
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported value of type " + value.getClass().getName());
+            }
+        }
+
+        void mapEntries(Map<?, ?> map) {
+            varint(map.size());
+            for (var entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String key)) {
+                    throw new IllegalArgumentException("Unsupported key " + entry.getKey());
+                }
+                string(key);
+                value(entry.getValue());
+            }
+        }
+
+        void locations(ZdlLocations.Store store) {
+            varint(store.size());
+            int[] previous = new int[6];
+            for (int entry = 0; entry < store.size(); entry++) {
+                var segments = store.path(entry).split("\\.", -1);
+                varint(segments.length);
+                for (var segment : segments) {
+                    string(segment);
+                }
+                var position = store.position(entry);
+                zigzag(position[0] - previous[0]);
+                zigzag(position[1] - position[0]);
+                zigzag(position[2] - previous[2]);
+                zigzag(position[3]);
+                zigzag(position[4] - position[2]);
+                zigzag(position[5]);
+                previous = position;
+            }
+        }
+
+        void string(String string) {
+            var ref = strings.putIfAbsent(string, strings.size());
+            if (ref != null) {
+                tag(STRING_REF);
+                varint(ref);
+            } else {
+                tag(STRING);
+                var bytes = string.getBytes(StandardCharsets.UTF_8);
+                varint(bytes.length);
+                bytes(bytes);
+            }
+        }
+
+        void tag(int tag) {
+            ensure(1);
+            buffer[size++] = (byte) tag;
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+
+        void fixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+    }
+
+    private static class Reader {
+        final byte[] buffer;
+        int position;
+        final List<String> strings = new ArrayList<>();
+        final List<Object> objects = new ArrayList<>();
+        int depth;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        Object value() throws IOException {
+            int tag = buffer[position++];
+            return switch (tag) {
+                case NULL -> null;
+                case FALSE -> false;
+                case TRUE -> true;
+                case STRING, STRING_REF -> string(tag);
+                case INTEGER -> (int) zigzag();
+                case LONG -> zigzag();
+                case DOUBLE -> Double.longBitsToDouble(fixed64());
+                case BIG_DECIMAL -> new BigDecimal(string(buffer[position++]));
+                case INT_ARRAY -> {
+                    var array = new int[length(1)];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = (int) zigzag();
+                    }
+                    yield array;
+                }
+                case MAP -> {
+                    int entries = length(2);
+                    var map = entries <= CompactMap.MAX_SIZE ? new CompactMap(entries) : new FluentMap();
+                    register(map, entries);
+                    enter();
+                    mapEntries(map, entries);
+                    depth--;
+                    yield map;
+                }
+                case LIST -> {
+                    int length = length(1);
+                    var list = new ArrayList<>(length);
+                    register(list, length);
+                    enter();
+                    for (int i = 0; i < length; i++) {
+                        list.add(value());
+                    }
+                    depth--;
+                    yield list;
+                }
+                case LOCATIONS -> {
+                    int entries = length(7);
+                    var locations = new ZdlLocations();
+                    register(locations, entries);
+                    locations(locations, entries);
+                    yield locations;
+                }
+                case REF -> objects.get((int) varint());
+                default -> throw new IOException("Unknown tag " + tag + " at " + (position - 1));
+            };
+        }
+
+        void enter() throws IOException {
+            if (++depth > MAX_DEPTH) {
+                throw new IOException("Maps and lists nested too deep at " + position);
+            }
+        }
+
+        void register(Object collection, int size) {
+            if (size > 0) {
+                objects.add(collection);
+            }
+        }
+
+        void mapEntries(Map<String, Object> map, int entries) throws IOException {
+            for (int i = 0; i < entries; i++) {
+                var key = string(buffer[position++]);
+                map.put(key, value());
+            }
+        }
+
+        void locations(ZdlLocations locations, int entries) throws IOException {
+            int[] previous = new int[6];
+            var path = new StringBuilder();
+            for (int entry = 0; entry < entries; entry++) {
+                path.setLength(0);
+                int segments = length(1);
+                for (int i = 0; i < segments; i++) {
+                    if (i > 0) {
+                        path.append('.');
+                    }
+                    path.append(string(buffer[position++]));
+                }
+                var current = new int[6];
+                current[0] = previous[0] + (int) zigzag();
+                current[1] = current[0] + (int) zigzag();
+                current[2] = previous[2] + (int) zigzag();
+                current[3] = (int) zigzag();
+                current[4] = current[2] + (int) zigzag();
+                current[5] = (int) zigzag();
+                locations.put(path.toString(), current);
+                previous = current;
+            }
+        }
+
+        String string(int tag) throws IOException {
+            if (tag == STRING_REF) {
+                return strings.get((int) varint());
+            }
+            if (tag != STRING) {
+                throw new IOException("Expected a string at " + (position - 1));
+            }
+            int length = length(1);
+            var string = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            strings.add(string);
+            return string;
+        }
+
+        /**
+         * Reads the length of something made of elements taking at least the given bytes each, checking it fits in the
+         * bytes left, so corrupted lengths don't allocate huge arrays.
+         */
+        int length(int bytesPerElement) throws IOException {
+            long length = varint();
+            if (length < 0 || length > (buffer.length - position) / bytesPerElement) {
+                throw new IOException("Invalid length " + length + " at " + position);
+            }
+            return (int) length;
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 63) {
+                    throw new IOException("Invalid varint at " + position);
+                }
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        long zigzag() throws IOException {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long fixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (buffer[position++] & 0xFFL) << (i * 8);
+            }
+            return value;
+        }
+
+        byte[] bytes(int length) {
+            var bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package io.zenwave360.zdl.antlr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes a {@link ZdlModel} as JSON straight to a stream, walking the model without building any intermediate copy
+ * (locations are written from their compact store, without materializing them).
+ * <p>
+ * The output is the same Jackson's <code>ObjectMapper</code> produces for the model, compact or with its default pretty
+ * printer, so existing consumers of exported models keep working. The <code>locations</code>, <code>problems</code> and
+ * derived <code>allEntitiesAndEnums</code> sections can be left out.
+ */
+public class ZdlModelJsonWriter {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private boolean locations = true;
+    private boolean problems = true;
+    private boolean allEntitiesAndEnums = true;
+    private boolean prettyPrint = false;
+
+    public ZdlModelJsonWriter withLocations(boolean locations) {
+        this.locations = locations;
+        return this;
+    }
+
+    public ZdlModelJsonWriter withProblems(boolean problems) {
+        this.problems = problems;
+        return this;
+    }
+
+    public ZdlModelJsonWriter withAllEntitiesAndEnums(boolean allEntitiesAndEnums) {
+        this.allEntitiesAndEnums = allEntitiesAndEnums;
+        return this;
+    }
+
+    /**
+     * Whether to indent the output as Jackson's default pretty printer does (default <code>false</code>).
+     */
+    public ZdlModelJsonWriter withPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+        return this;
+    }
+
+    /**
+     * Writes the model as UTF-8, flushing but not closing the stream.
+     */
+    public void write(ZdlModel model, OutputStream out) throws IOException {
+        var output = new Output(null, out);
+        output.model(model);
+        output.flush();
+        out.flush();
+    }
+
+    /**
+     * Writes the model, flushing but not closing the writer.
+     */
+    public void write(ZdlModel model, Writer out) throws IOException {
+        var output = new Output(out, null);
+        output.model(model);
+        output.flush();
+        out.flush();
+    }
+
+    public String toJson(ZdlModel model) {
+        var out = new StringWriter();
+        try {
+            write(model, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter doesn't throw
+        }
+        return out.toString();
+    }
+
+    private class Output {
+        final Writer out;
+        final OutputStream stream;
+        final char[] buffer = new char[8192];
+        final byte[] bytes;
+        int size;
+        // nesting of objects, arrays are written inline as Jackson's default pretty printer does
+        int objects;
+
+        /**
+         * Writes chars to <code>out</code>, or encodes them as UTF-8 into <code>stream</code>, which is much faster than
+         * going through an <code>OutputStreamWriter</code>.
+         */
+        Output(Writer out, OutputStream stream) {
+            this.out = out;
+            this.stream = stream;
+            this.bytes = stream != null ? new byte[buffer.length * 3] : null;
+        }
+
+        void write(char c) throws IOException {
+            if (size == buffer.length) {
+                flush();
+            }
+            buffer[size++] = c;
+        }
+
+        void write(String string) throws IOException {
+            write(string, 0, string.length());
+        }
+
+        void write(String string, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (size == buffer.length) {
+                    flush();
+                }
+                int chunk = Math.min(length, buffer.length - size);
+                string.getChars(offset, offset + chunk, buffer, size);
+                size += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void number(int value) throws IOException {
+            if (value < 0 || value >= 10_000) {
+                write(Integer.toString(value));
+                return;
+            }
+            if (size + 4 > buffer.length) {
+                flush();
+            }
+            if (value >= 1000) {
+                buffer[size++] = (char) ('0' + value / 1000);
+            }
+            if (value >= 100) {
+                buffer[size++] = (char) ('0' + value / 100 % 10);
+            }
+            if (value >= 10) {
+                buffer[size++] = (char) ('0' + value / 10 % 10);
+            }
+            buffer[size++] = (char) ('0' + value % 10);
+        }
+
+        void flush() throws IOException {
+            if (out != null) {
+                out.write(buffer, 0, size);
+                size = 0;
+                return;
+            }
+            // surrogates are escaped by string(), as Jackson does by default when writing bytes
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                char c = buffer[i];
+                if (c < 0x80) {
+                    bytes[count++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[count++] = (byte) (0xC0 | c >> 6);
+                    bytes[count++] = (byte) (0x80 | c & 0x3F);
+                } else {
+                    bytes[count++] = (byte) (0xE0 | c >> 12);
+                    bytes[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[count++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            stream.write(bytes, 0, count);
+            size = 0;
+        }
+
+        void model(ZdlModel model) throws IOException {
+            int entries = 0;
+            write('{');
+            objects++;
+            for (var entry : model.entrySet()) {
+                var key = entry.getKey();
+                if ((!locations && "locations".equals(key)) || (!problems && "problems".equals(key)) || (!allEntitiesAndEnums && "allEntitiesAndEnums".equals(key))) {
+                    continue;
+                }
+                field(entries++, key);
+                value(entry.getValue());
+            }
+            endObject(entries);
+        }
+
+        void value(Object value) throws IOException {
+            if (value == null) {
+                write("null");
+            } else if (value instanceof String string) {
+                string(string);
+            } else if (value instanceof CharSequence text) {
+                string(text.toString());
+            } else if (value instanceof Boolean || value instanceof Number) {
+                write(value.toString());
+            } else if (value instanceof ZdlLocations zdlLocations && !zdlLocations.isMaterialized()) {
+                locations(zdlLocations.store());
+            } else if (value instanceof Map<?, ?> map) {
+                int entries = 0;
+                write('{');
+                objects++;
+                for (var entry : map.entrySet()) {
+                    field(entries++, String.valueOf(entry.getKey()));
+                    value(entry.getValue());
+                }
+                endObject(entries);
+            } else if (value instanceof Collection<?> collection) {
+                int elements = 0;
+                write('[');
+                for (var element : collection) {
+                    element(elements++);
+                    value(element);
+                }
+                endArray();
+            } else if (value instanceof int[] array) {
+                intArray(array);
+            } else {
+                throw new IllegalArgumentException("Unsupported value of type " + value.getClass().getName());
+            }
+        }
+
+        void locations(ZdlLocations.Store store) throws IOException {
+            write('{');
+            objects++;
+            for (int entry = 0; entry < store.size(); entry++) {
+                field(entry, store.path(entry));
+                int elements = 0;
+                write('[');
+                for (int index = 0; index < 6; index++) {
+                    element(elements++);
+                    number(store.position(entry, index));
+                }
+                endArray();
+            }
+            endObject(store.size());
+        }
+
+        void intArray(int[] array) throws IOException {
+            write('[');
+            for (int i = 0; i < array.length; i++) {
+                element(i);
+                number(array[i]);
+            }
+            endArray();
+        }
+
+        void field(int index, String name) throws IOException {
+            if (index > 0) {
+                write(',');
+            }
+            indent();
+            string(name);
+            write(prettyPrint ? " : " : ":");
+        }
+
+        void endObject(int entries) throws IOException {
+            objects--;
+            if (prettyPrint) {
+                if (entries > 0) {
+                    indent();
+                } else {
+                    write(' ');
+                }
+            }
+            write('}');
+        }
+
+        void element(int index) throws IOException {
+            if (index > 0) {
+                write(',');
+            }
+            if (prettyPrint) {
+                write(' ');
+            }
+        }
+
+        void endArray() throws IOException {
+            if (prettyPrint) {
+                write(' ');
+            }
+            write(']');
+        }
+
+        void indent() throws IOException {
+            if (prettyPrint) {
+                write('\n');
+                for (int i = 0; i < objects; i++) {
+                    write("  ");
+                }
+            }
+        }
+
+        void string(String string) throws IOException {
+            write('"');
+            int start = 0;
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\' && (stream == null || !Character.isSurrogate(c))) {
+                    continue;
+                }
+                write(string, start, i - start);
+                start = i + 1;
+                switch (c) {
+                    case '"' -> write("\\\"");
+                    case '\\' -> write("\\\\");
+                    case '\b' -> write("\\b");
+                    case '\f' -> write("\\f");
+                    case '\n' -> write("\\n");
+                    case '\r' -> write("\\r");
+                    case '\t' -> write("\\t");
+                    default -> {
+                        write("\\u");
+                        for (int shift = 12; shift >= 0; shift -= 4) {
+                            write(HEX[c >> shift & 0xF]);
+                        }
+                    }
+                }
+            }
+            write(string, start, string.length() - start);
+            write('"');
+        }
+    }
+}
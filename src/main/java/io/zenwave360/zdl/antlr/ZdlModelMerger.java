@@ -0,0 +1,260 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges models parsed from consecutive fragments of a source (like its top level declarations) into the model of the
+ * whole source, as if it had been parsed at once.
+ * <p>
+ * Merging follows the same rules the listener uses to build the model: declarations are appended to their collections
+ * in order (a repeated name keeps its first position and the last value), lists are concatenated and relationships are
+ * grouped by type. Declarations are not copied, so fragment models shouldn't be reused for anything else than merging,
+ * unless what is merged is a {@link #copy(ZdlModel)}.
+ * <p>
+ * Fragment locations are relative to the start of the fragment (char 0, line 1, column 0) and are shifted to where
+ * the fragment starts in the whole source: chars and lines by a fixed offset, columns only on the fragment first line.
+ * Chars and columns count code points, as ANTLR does.
+ */
+public class ZdlModelMerger {
+
+    private ZdlModelMerger() {
+    }
+
+    /**
+     * Appends the contents of a model parsed from a fragment starting at the given char, line (1 based) and column of
+     * the whole source.
+     */
+    public static ZdlModel merge(ZdlModel target, ZdlModel fragment, int startChar, int startLine, int startColumn) {
+        return merge(target, fragment, true, startChar, startLine, startColumn);
+    }
+
+    /**
+     * Appends the contents of a model parsed from another source, like an imported file, leaving its locations out.
+     */
+    public static ZdlModel mergeWithoutLocations(ZdlModel target, ZdlModel other) {
+        return merge(target, other, false, 0, 1, 0);
+    }
+
+    private static ZdlModel merge(ZdlModel target, ZdlModel fragment, boolean withLocations, int startChar, int startLine, int startColumn) {
+        for (var entry : fragment.entrySet()) {
+            if ("locations".equals(entry.getKey())) {
+                if (withLocations) {
+                    mergeLocations(target, (Map<String, Object>) entry.getValue(), startChar, startLine, startColumn);
+                }
+            } else {
+                mergeValue(target, entry.getKey(), entry.getValue());
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Merges again one key of a model merged from the given fragments, replacing its value with the one merged from all
+     * of them, for instance after some fragments have been parsed again. The key keeps its position in the model.
+     */
+    public static ZdlModel remerge(ZdlModel target, String key, List<ZdlModel> fragments) {
+        var current = target.get(key);
+        target.put(key, current instanceof Map ? new FluentMap() : current instanceof List ? new ArrayList<>() : null);
+        for (var fragment : fragments) {
+            if (fragment.containsKey(key)) {
+                mergeValue(target, key, fragment.get(key));
+            }
+        }
+        return target;
+    }
+
+    private static void mergeValue(ZdlModel target, String key, Object value) {
+        var current = target.get(key);
+        if ("relationships".equals(key) && current instanceof Map && value instanceof Map) {
+            for (var relationships : ((Map<String, Object>) value).entrySet()) {
+                var byType = (Map<String, Object>) ((Map<String, Object>) current).computeIfAbsent(relationships.getKey(), k -> new FluentMap());
+                byType.putAll((Map<String, Object>) relationships.getValue());
+            }
+        } else if (current instanceof Map && value instanceof Map) {
+            ((Map<String, Object>) current).putAll((Map<String, Object>) value);
+        } else if (current instanceof List && value instanceof List) {
+            ((List<Object>) current).addAll((List<Object>) value);
+        } else if (value instanceof Map) {
+            var copy = new FluentMap();
+            copy.putAll((Map<String, Object>) value);
+            target.put(key, copy);
+        } else if (value instanceof List) {
+            target.put(key, new ArrayList<>((List<Object>) value));
+        } else {
+            target.put(key, value);
+        }
+    }
+
+    /**
+     * Replaces the locations of a model merged from the given fragments with theirs, as {@link #merge} does, but only
+     * merging them the first time they are read. <code>starts</code> has the char, line and column where each fragment
+     * starts.
+     */
+    public static ZdlModel mergeLocationsLazily(ZdlModel target, List<ZdlModel> fragments, List<int[]> starts) {
+        target.put("locations", new ZdlLocations(() -> {
+            var merged = new ZdlModel();
+            for (int i = 0; i < fragments.size(); i++) {
+                var start = starts.get(i);
+                mergeLocations(merged, fragments.get(i).getLocations(), start[0], start[1], start[2]);
+            }
+            return ((ZdlLocations) merged.getLocations()).store();
+        }));
+        return target;
+    }
+
+    /**
+     * Returns a copy of a position in a fragment, shifted to where the fragment starts in the whole source.
+     */
+    public static int[] shifted(int[] position, int startChar, int startLine, int startColumn) {
+        var shifted = position.clone();
+        shift(shifted, startChar, startLine, startColumn);
+        return shifted;
+    }
+
+    /**
+     * Returns a deep copy of a model, to merge the same fragment more than once (like a cached one) without the merged
+     * models sharing declarations. Values shared within the model are shared within the copy too, and unmodifiable
+     * values are not copied.
+     */
+    public static ZdlModel copy(ZdlModel model) {
+        var copies = new IdentityHashMap<Object, Object>();
+        var copy = new ZdlModel();
+        if (model.isLocationsDisabled()) {
+            copy.disableLocations();
+        }
+        for (var entry : model.entrySet()) {
+            copy.put(entry.getKey(), copy(entry.getValue(), copies));
+        }
+        return copy;
+    }
+
+    private static Object copy(Object value, Map<Object, Object> copies) {
+        if (value == null || !(value instanceof Map || value instanceof List || value instanceof int[])) {
+            return value;
+        }
+        var copy = copies.get(value);
+        if (copy != null) {
+            return copy;
+        }
+        if (value instanceof int[] array) {
+            copy = array.clone();
+        } else if (value instanceof ZdlLocations locations) {
+            var locationsCopy = new ZdlLocations();
+            locationsCopy.putAll(locations.store(), position -> {});
+            copy = locationsCopy;
+        } else if (value instanceof Map<?, ?> map) {
+            var mapCopy = newMap(map);
+            if (mapCopy == null) {
+                return value;
+            }
+            copies.put(value, mapCopy);
+            for (var entry : map.entrySet()) {
+                mapCopy.put(entry.getKey(), copy(entry.getValue(), copies));
+            }
+            return mapCopy;
+        } else if (value.getClass() == ArrayList.class) {
+            var list = (List<Object>) value;
+            var listCopy = new ArrayList<>(list.size());
+            copies.put(value, listCopy);
+            for (var item : list) {
+                listCopy.add(copy(item, copies));
+            }
+            return listCopy;
+        } else {
+            return value;
+        }
+        copies.put(value, copy);
+        return copy;
+    }
+
+    /**
+     * Returns an empty map of the same kind, or <code>null</code> for maps that are not modifiable.
+     */
+    private static Map newMap(Map<?, ?> map) {
+        var type = map.getClass();
+        if (type == CompactMap.class) {
+            return new CompactMap(map.size());
+        } else if (type == FluentMap.class) {
+            return new FluentMap();
+        } else if (type == LinkedHashMap.class) {
+            return new LinkedHashMap<>();
+        } else if (type == HashMap.class) {
+            return new HashMap<>();
+        }
+        return null;
+    }
+
+    /**
+     * Makes the locations of a model relative to the given position, the inverse of {@link #merge}: the model can then
+     * be merged at any place where the same fragment starts.
+     */
+    public static ZdlModel relativize(ZdlModel model, int startChar, int startLine, int startColumn) {
+        var locations = model.getLocations();
+        if (locations == null || locations.isEmpty()) {
+            return model;
+        }
+        if (locations instanceof ZdlLocations zdlLocations && !zdlLocations.isMaterialized()) {
+            var store = zdlLocations.store();
+            for (int entry = 0; entry < store.size(); entry++) {
+                var position = store.position(entry);
+                relativize(position, startChar, startLine, startColumn);
+                store.put(store.path(entry), position);
+            }
+        } else {
+            for (var entry : locations.entrySet()) {
+                if (entry.getValue() instanceof int[] position && position.length == 6) {
+                    var relative = position.clone();
+                    relativize(relative, startChar, startLine, startColumn);
+                    entry.setValue(relative);
+                }
+            }
+        }
+        return model;
+    }
+
+    private static void mergeLocations(ZdlModel target, Map<String, Object> locations, int startChar, int startLine, int startColumn) {
+        if (locations instanceof ZdlLocations zdlLocations && target.getLocations() instanceof ZdlLocations targetLocations) {
+            targetLocations.putAll(zdlLocations.store(), position -> shift(position, startChar, startLine, startColumn));
+        } else {
+            for (var entry : locations.entrySet()) {
+                if (entry.getValue() instanceof int[] position && position.length == 6) {
+                    var shifted = position.clone();
+                    shift(shifted, startChar, startLine, startColumn);
+                    target.setLocation(entry.getKey(), shifted);
+                }
+            }
+        }
+    }
+
+    // [startChar, stopChar, startLine, startColumn, endLine, endColumn]
+    private static void shift(int[] position, int startChar, int startLine, int startColumn) {
+        position[0] += startChar;
+        position[1] += startChar;
+        if (position[2] == 1) {
+            position[3] += startColumn;
+        }
+        if (position[4] == 1) {
+            position[5] += startColumn;
+        }
+        position[2] += startLine - 1;
+        position[4] += startLine - 1;
+    }
+
+    private static void relativize(int[] position, int startChar, int startLine, int startColumn) {
+        position[0] -= startChar;
+        position[1] -= startChar;
+        if (position[2] == startLine) {
+            position[3] -= startColumn;
+        }
+        if (position[4] == startLine) {
+            position[5] -= startColumn;
+        }
+        position[2] -= startLine - 1;
+        position[4] -= startLine - 1;
+    }
+}
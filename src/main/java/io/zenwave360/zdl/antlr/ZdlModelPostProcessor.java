@@ -1,42 +1,70 @@
 package io.zenwave360.zdl.antlr;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ZdlModelPostProcessor {
 
+    private static final List<String> FIELD_FLAGS = List.of("isInput", "isOutput", "isEvent", "isComplexType");
+
     public static ZdlModel postProcess(ZdlModel model) {
-        var aggregates = model.getAggregates();
+        processFields(model, model, false);
+        allEntitiesAndEnums(model);
+        return model;
+    }
+
+    /**
+     * Post processes a model merged from declarations that may have been post processed before, as a model being parsed
+     * incrementally is after each edit, classifying again only the fields declared in the given parts of it.
+     */
+    public static ZdlModel postProcess(ZdlModel model, Collection<ZdlModel> parts) {
+        for (var part : parts) {
+            processFields(part, model, true);
+        }
+        allEntitiesAndEnums(model);
+        return model;
+    }
+
+    /**
+     * Classifies the fields declared in <code>declarations</code> by the type they reference in <code>model</code>.
+     */
+    private static void processFields(ZdlModel declarations, ZdlModel model, boolean reset) {
         var entities = model.getEntities();
         var inputs = model.getInputs();
         var outputs = model.getOutputs();
         var enums = model.getEnums();
         var events = model.getEvents();
 
-        var fields = JSONPath.get(model, "$..fields[*]", List.<Map<String, Object>>of());
-        for (var field : fields) {
-            if(entities != null && entities.containsKey(field.get("type"))) {
-                field.put("isEntity", true);
-                field.put("isComplexType", true);
-            }
-            if(enums != null && enums.containsKey(field.get("type"))) {
-                field.put("isEnum", true);
-                field.put("isComplexType", true);
-            }
-            if(inputs != null && inputs.containsKey(field.get("type"))) {
-                field.put("isInput", true);
-                field.put("isComplexType", true);
+        // only entities, inputs, outputs and events (including nested ones) declare fields
+        for (var collection : Arrays.asList(declarations.getEntities(), declarations.getInputs(), declarations.getOutputs(), declarations.getEvents())) {
+            if(collection == null) {
+                continue;
             }
-            if(outputs != null && outputs.containsKey(field.get("type"))) {
-                field.put("isOutput", true);
-                field.put("isComplexType", true);
-            }
-            if(events != null && events.containsKey(field.get("type"))) {
-                field.put("isEvent", true);
-                field.put("isComplexType", true);
+            for (var entity : collection.values()) {
+                var fields = entity instanceof Map? ((Map) entity).get("fields") : null;
+                if(fields instanceof Map) {
+                    for (var field : ((Map<String, Object>) fields).values()) {
+                        if(field instanceof Map) {
+                            if(reset) {
+                                resetField((Map<String, Object>) field);
+                            }
+                            processField((Map<String, Object>) field, entities, enums, inputs, outputs, events);
+                        }
+                    }
+                }
             }
         }
+    }
+
+    private static void allEntitiesAndEnums(ZdlModel model) {
+        var aggregates = model.getAggregates();
+        var entities = model.getEntities();
+        var inputs = model.getInputs();
+        var outputs = model.getOutputs();
+        var enums = model.getEnums();
 
         var allEntitiesAndEnums = new HashMap<>();
         if(aggregates != null) {
@@ -55,7 +83,38 @@ public class ZdlModelPostProcessor {
             allEntitiesAndEnums.putAll(outputs);
         }
         model.put("allEntitiesAndEnums", allEntitiesAndEnums);
+    }
 
-        return model;
+    /**
+     * Restores the flags of a field to how the listener creates them.
+     */
+    private static void resetField(Map<String, Object> field) {
+        field.replace("isEntity", false);
+        field.replace("isEnum", false);
+        field.keySet().removeAll(FIELD_FLAGS);
+    }
+
+    private static void processField(Map<String, Object> field, Map entities, Map enums, Map inputs, Map outputs, Map events) {
+        var type = field.get("type");
+        if(entities != null && entities.containsKey(type)) {
+            field.put("isEntity", true);
+            field.put("isComplexType", true);
+        }
+        if(enums != null && enums.containsKey(type)) {
+            field.put("isEnum", true);
+            field.put("isComplexType", true);
+        }
+        if(inputs != null && inputs.containsKey(type)) {
+            field.put("isInput", true);
+            field.put("isComplexType", true);
+        }
+        if(outputs != null && outputs.containsKey(type)) {
+            field.put("isOutput", true);
+            field.put("isComplexType", true);
+        }
+        if(events != null && events.containsKey(type)) {
+            field.put("isEvent", true);
+            field.put("isComplexType", true);
+        }
     }
 }
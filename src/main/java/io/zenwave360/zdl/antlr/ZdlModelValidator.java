@@ -1,5 +1,7 @@
 package io.zenwave360.zdl.antlr;
 
+import com.jayway.jsonpath.JsonPath;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -9,6 +11,23 @@ import static io.zenwave360.zdl.ZdlParser.STANDARD_FIELD_TYPES;
 
 public class ZdlModelValidator {
 
+    private static final JsonPath APIS = JSONPath.compile("$.apis[*]");
+    private static final JsonPath RELATIONSHIPS = JSONPath.compile("$.relationships[*][*]");
+    private static final JsonPath TYPE = JSONPath.compile("$.type");
+    private static final JsonPath NAME = JSONPath.compile("$.name");
+    private static final JsonPath FROM = JSONPath.compile("$.from");
+    private static final JsonPath TO = JSONPath.compile("$.to");
+    private static final JsonPath INJECTED_FIELD_IN_FROM = JSONPath.compile("$.injectedFieldInFrom");
+    private static final JsonPath INJECTED_FIELD_IN_TO = JSONPath.compile("$.injectedFieldInTo");
+    private static final JsonPath FIELDS = JSONPath.compile("$.fields");
+    private static final JsonPath AGGREGATES = JSONPath.compile("$.aggregates");
+    private static final JsonPath AGGREGATE_ROOT = JSONPath.compile("$.aggregateRoot");
+    private static final JsonPath COMMANDS = JSONPath.compile("$.commands[*]");
+    private static final JsonPath PARAMETER = JSONPath.compile("$.parameter");
+    private static final JsonPath SERVICES = JSONPath.compile("$.services");
+    private static final JsonPath METHODS = JSONPath.compile("$.methods[*]");
+    private static final JsonPath RETURN_TYPE = JSONPath.compile("$.returnType");
+
     private List<String> API_ROLES = List.of("provider", "client");
     
     private List<String> standardFieldTypes = STANDARD_FIELD_TYPES;
@@ -25,20 +44,36 @@ public class ZdlModelValidator {
     }
 
     public ZdlModel validate(ZdlModel model) {
+        return validate(model, ZdlSymbolTable.of(model));
+    }
+
+    /**
+     * Validates each of the given parts of a model (like the declarations of a source parsed incrementally) on its own,
+     * resolving the types they reference against all the declarations in <code>model</code>. The problems of each part
+     * are left in it, with the part locations.
+     */
+    public void validate(ZdlModel model, Collection<ZdlModel> parts) {
+        var symbols = ZdlSymbolTable.of(model);
+        for (var part : parts) {
+            validate(part, symbols);
+        }
+    }
+
+    private ZdlModel validate(ZdlModel model, ZdlSymbolTable symbols) {
         model.clearProblems();
         validateApis(model);
-        validateEntitiesFields(model, "entities");
-        validateEntitiesFields(model, "inputs");
-        validateEntitiesFields(model, "outputs");
-        validateEntitiesFields(model, "events");
-        validateAggregates(model);
-        validateServices(model);
-        validateRelationships(model);
+        validateEntitiesFields(model, symbols, "entities");
+        validateEntitiesFields(model, symbols, "inputs");
+        validateEntitiesFields(model, symbols, "outputs");
+        validateEntitiesFields(model, symbols, "events");
+        validateAggregates(model, symbols);
+        validateServices(model, symbols);
+        validateRelationships(model, symbols);
         return model;
     }
 
     private void validateApis(ZdlModel model) {
-        var apis = JSONPath.get(model, "$.apis[*]", List.<Map<String, Map>>of());
+        var apis = JSONPath.get(model, APIS, List.<Map<String, Map>>of());
         for (Map api : apis) {
             if(!API_ROLES.contains(api.get("role"))) {
                 model.addProblem(path("apis", (String) api.get("name"), "role"), (String) api.get("role"), "%s is not a valid API role [provider|client]");
@@ -46,80 +81,80 @@ public class ZdlModelValidator {
         }
     }
 
-    private void validateRelationships(ZdlModel model) {
-        var relationships = JSONPath.get(model, "$.relationships[*][*]", List.<Map<String, Map>>of());
+    private void validateRelationships(ZdlModel model, ZdlSymbolTable symbols) {
+        var relationships = JSONPath.get(model, RELATIONSHIPS, List.<Map<String, Map>>of());
         for (Map relationship : relationships) {
-            var type = (String) JSONPath.get(relationship, "$.type");
-            var name = (String) JSONPath.get(relationship, "$.name");
-            var from = (String) JSONPath.get(relationship, "$.from");
-            var to = (String) JSONPath.get(relationship, "$.to");
-            var injectedFieldInFrom = (String) JSONPath.get(relationship, "$.injectedFieldInFrom");
-            var injectedFieldInTo = (String) JSONPath.get(relationship, "$.injectedFieldInTo");
-            if(!isEntity(model, from)) {
+            var type = (String) JSONPath.get(relationship, TYPE);
+            var name = (String) JSONPath.get(relationship, NAME);
+            var from = (String) JSONPath.get(relationship, FROM);
+            var to = (String) JSONPath.get(relationship, TO);
+            var injectedFieldInFrom = (String) JSONPath.get(relationship, INJECTED_FIELD_IN_FROM);
+            var injectedFieldInTo = (String) JSONPath.get(relationship, INJECTED_FIELD_IN_TO);
+            if(!isEntity(symbols, from)) {
                 model.addProblem(path("relationships", name, "from", "entity"), from, "%s is not a valid entity");
             }
-            if(!isEntity(model, to)) {
+            if(!isEntity(symbols, to)) {
                 model.addProblem(path("relationships", name, "to", "entity"), to, "%s is not a valid entity");
             }
             // TODO: validate injectedFieldInFrom and injectedFieldInTo
         }
     }
 
-    private void validateEntitiesFields(ZdlModel model, String type) {
+    private void validateEntitiesFields(ZdlModel model, ZdlSymbolTable symbols, String type) {
         var entities = JSONPath.get(model, "$." + type, Map.<String, Object>of());
         for (Map.Entry<String, Object> entity : entities.entrySet()) {
-            validateFields(model, (Map) entity.getValue());
+            validateFields(model, symbols, (Map) entity.getValue());
         }
     }
 
-    private void validateFields(ZdlModel model, Map entity) {
-        String entityType = (String) JSONPath.get(entity, "$.type");
-        String entityName = (String) JSONPath.get(entity, "$.name");
-        var fields = JSONPath.get(entity, "$.fields", Map.<String, Map>of());
+    private void validateFields(ZdlModel model, ZdlSymbolTable symbols, Map entity) {
+        String entityType = (String) JSONPath.get(entity, TYPE);
+        String entityName = (String) JSONPath.get(entity, NAME);
+        var fields = JSONPath.get(entity, FIELDS, Map.<String, Map>of());
         for (Map field : fields.values()) {
-            var fieldName = (String) JSONPath.get(field, "$.name");
-            var fieldType = (String) JSONPath.get(field, "$.type");
-            validateField(model, entityType, entityName, fieldName, fieldType);
+            var fieldName = (String) JSONPath.get(field, NAME);
+            var fieldType = (String) JSONPath.get(field, TYPE);
+            validateField(model, symbols, entityType, entityName, fieldName, fieldType);
         }
     }
 
-    private void validateField(ZdlModel model, String entityType, String entityName, String fieldName, String fieldType) {
+    private void validateField(ZdlModel model, ZdlSymbolTable symbols, String entityType, String entityName, String fieldName, String fieldType) {
         if("entities".equals(entityType)) {
-            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(model, fieldType))) {
+            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(symbols, fieldType))) {
                 model.addProblem(path("entities", entityName, "fields", fieldName, "type"), fieldType, "%s is not a valid type");
             }
         }
         else if ("inputs".equals(entityType)) {
-            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(model, fieldType) || isInput(model, fieldType))) {
+            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(symbols, fieldType) || isInput(symbols, fieldType))) {
                 model.addProblem(path("inputs", entityName, "fields", fieldName, "type"), fieldType, "%s is not a valid type");
             }
         }
         else if ("outputs".equals(entityType)) {
-            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(model, fieldType) || isInput(model, fieldType) || isOutput(model, fieldType))) {
+            if(!(isStandardFieldType(fieldType) || isEntityOrEnum(symbols, fieldType) || isInput(symbols, fieldType) || isOutput(symbols, fieldType))) {
                 model.addProblem(path("outputs", entityName, "fields", fieldName, "type"), fieldType, "%s is not a valid type");
             }
         }
         else if ("events".equals(entityType)) {
-            if (!(isStandardFieldType(fieldType) || isEntityOrEnum(model, fieldType) || isEvent(model, fieldType))) {
+            if (!(isStandardFieldType(fieldType) || isEntityOrEnum(symbols, fieldType) || isEvent(symbols, fieldType))) {
                 model.addProblem(path("events", entityName, "fields", fieldName, "type"), fieldType, "%s is not a valid type");
             }
         }
     }
 
-    private List<Map> validateAggregates(ZdlModel model) {
-        var services = JSONPath.get(model, "$.aggregates", Map.<String, Object>of());
+    private List<Map> validateAggregates(ZdlModel model, ZdlSymbolTable symbols) {
+        var services = JSONPath.get(model, AGGREGATES, Map.<String, Object>of());
         for (Map.Entry<String, Object> service : services.entrySet()) {
-            var aggregateRoot = (String) JSONPath.get(service.getValue(), "$.aggregateRoot");
-            if(aggregateRoot == null || !isEntity(model, aggregateRoot)) {
+            var aggregateRoot = (String) JSONPath.get(service.getValue(), AGGREGATE_ROOT);
+            if(aggregateRoot == null || !isEntity(symbols, aggregateRoot)) {
                 model.addProblem(path("aggregates", service.getKey(), "aggregateRoot"),  aggregateRoot,"%s is not an entity");
             }
 
 
-            var methods = JSONPath.get(service.getValue(), "$.commands[*]", List.<Map>of());
+            var methods = JSONPath.get(service.getValue(), COMMANDS, List.<Map>of());
             for (Map method : methods) {
-                var methodName = (String) JSONPath.get(method, "$.name");
-                var parameter = (String) JSONPath.get(method, "$.parameter");
-                if(parameter != null && !isEntity(model, parameter) && !isInput(model, parameter)) {
+                var methodName = (String) JSONPath.get(method, NAME);
+                var parameter = (String) JSONPath.get(method, PARAMETER);
+                if(parameter != null && !isEntity(symbols, parameter) && !isInput(symbols, parameter)) {
                     model.addProblem(path("aggregates", service.getKey(), "commands", methodName, "parameter"), parameter, "%s is not an entity or input");
                 }
                 List<Object> withEvents = (List) method.getOrDefault("withEvents", List.of());
@@ -128,12 +163,12 @@ public class ZdlModelValidator {
                     if (event instanceof List) {
                         for (int j = 0; j < ((List<?>) event).size(); j++) {
                             var innerEvent = (String) ((List<?>) event).get(j);
-                            if(!isEvent(model, innerEvent)) {
+                            if(!isEvent(symbols, innerEvent)) {
                                 model.addProblem(path("aggregates", service.getKey(), "commands", methodName, "withEvents", i+"", j+""), innerEvent, "%s is not an event");
                             }
                         }
                     } else {
-                        if(!isEvent(model, (String) event)) {
+                        if(!isEvent(symbols, (String) event)) {
                             model.addProblem(path("aggregates", service.getKey(), "commands", methodName, "withEvents", i+""), (String) event, "%s is not an event");
                         }
                     }
@@ -144,25 +179,25 @@ public class ZdlModelValidator {
         return null;
     }
 
-    private List<Map> validateServices(ZdlModel model) {
-        var services = JSONPath.get(model, "$.services", Map.<String, Object>of());
+    private List<Map> validateServices(ZdlModel model, ZdlSymbolTable symbols) {
+        var services = JSONPath.get(model, SERVICES, Map.<String, Object>of());
         for (Map.Entry<String, Object> service : services.entrySet()) {
-            var aggregates = JSONPath.get(service.getValue(), "$.aggregates", List.<String>of());
+            var aggregates = JSONPath.get(service.getValue(), AGGREGATES, List.<String>of());
             for (String aggregate : aggregates) {
-                if(!aggregate.isEmpty() && !isAggregate(model, aggregate)) {
+                if(!aggregate.isEmpty() && !isAggregate(symbols, aggregate)) {
                     model.addProblem(path("services", service.getKey(), "aggregates"),  aggregate,"%s is not an aggregate");
                 }
             }
 
-            var methods = JSONPath.get(service.getValue(), "$.methods[*]", List.<Map>of());
+            var methods = JSONPath.get(service.getValue(), METHODS, List.<Map>of());
             for (Map method : methods) {
-                var methodName = (String) JSONPath.get(method, "$.name");
-                var parameter = (String) JSONPath.get(method, "$.parameter");
-                if(parameter != null && !isEntity(model, parameter) && !isInput(model, parameter)) {
+                var methodName = (String) JSONPath.get(method, NAME);
+                var parameter = (String) JSONPath.get(method, PARAMETER);
+                if(parameter != null && !isEntity(symbols, parameter) && !isInput(symbols, parameter)) {
                     model.addProblem(path("services", service.getKey(), "methods", methodName, "parameter"), parameter, "%s is not an entity or input");
                 }
-                var returnType = (String) JSONPath.get(method, "$.returnType");
-                if(returnType != null && !isEntity(model, returnType) && !isInput(model, returnType) && !isOutput(model, returnType)) {
+                var returnType = (String) JSONPath.get(method, RETURN_TYPE);
+                if(returnType != null && !isEntity(symbols, returnType) && !isInput(symbols, returnType) && !isOutput(symbols, returnType)) {
                     model.addProblem(path("services", service.getKey(), "methods", methodName, "returnType"), returnType, "%s is not an entity, input or output");
                 }
                 List<Object> withEvents = (List) method.getOrDefault("withEvents", List.of());
@@ -171,12 +206,12 @@ public class ZdlModelValidator {
                     if (event instanceof List) {
                         for (int j = 0; j < ((List<?>) event).size(); j++) {
                             var innerEvent = (String) ((List<?>) event).get(j);
-                            if(!isEvent(model, innerEvent)) {
+                            if(!isEvent(symbols, innerEvent)) {
                                 model.addProblem(path("services", service.getKey(), "methods", methodName, "withEvents", i+"", j+""), innerEvent, "%s is not an event");
                             }
                         }
                     } else {
-                        if(!isEvent(model, (String) event)) {
+                        if(!isEvent(symbols, (String) event)) {
                             model.addProblem(path("services", service.getKey(), "methods", methodName, "withEvents", i+""), (String) event, "%s is not an event");
                         }
                     }
@@ -195,33 +230,32 @@ public class ZdlModelValidator {
         return fieldType != null && (standardFieldTypes.contains(fieldType) || extraFieldTypes.contains(fieldType));
     }
 
-    private boolean isEntity(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.entities." + entityName) != null;
+    private boolean isEntity(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isEntity(entityName);
     }
 
-    private boolean isEnum(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.enums." + entityName) != null;
+    private boolean isEnum(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isEnum(entityName);
     }
 
-    private boolean isInput(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.inputs." + entityName) != null;
+    private boolean isInput(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isInput(entityName);
     }
 
-    private boolean isOutput(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.outputs." + entityName) != null;
+    private boolean isOutput(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isOutput(entityName);
     }
 
-    private boolean isEvent(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.events." + entityName) != null;
+    private boolean isEvent(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isEvent(entityName);
     }
 
-    private boolean isEntityOrEnum(ZdlModel model, String entityName) {
-        return isEntity(model, entityName) || isEnum(model, entityName);
+    private boolean isEntityOrEnum(ZdlSymbolTable symbols, String entityName) {
+        return isEntity(symbols, entityName) || isEnum(symbols, entityName);
     }
 
-    private boolean isAggregate(ZdlModel model, String entityName) {
-        return JSONPath.get(model, "$.aggregates." + entityName) != null
-                || JSONPath.get(model, "$.entities." + entityName + ".options.aggregate", false);
+    private boolean isAggregate(ZdlSymbolTable symbols, String entityName) {
+        return symbols.isAggregate(entityName);
     }
 
     private List<String> methodEventsFlatList(Map<String, Object> method) {
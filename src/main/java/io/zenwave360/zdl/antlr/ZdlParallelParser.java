@@ -0,0 +1,98 @@
+package io.zenwave360.zdl.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Parses large sources in parallel, splitting them in chunks of complete top level declarations.
+ * <p>
+ * The source is lexed once and the tokens are split where a top level block closes (a <code>}</code> with no open
+ * braces, parentheses or brackets), in chunks of at least {@link #MIN_CHUNK_TOKENS} tokens. Chunks are parsed and
+ * walked on a {@link ForkJoinPool}, and their models are merged in source order with {@link ZdlModelMerger}. Tokens keep
+ * their positions in the whole source, so locations are the same as in a sequential parse.
+ */
+public class ZdlParallelParser {
+
+    /**
+     * Smaller chunks don't pay for the task and merge overhead.
+     */
+    static final int MIN_CHUNK_TOKENS = 2000;
+
+    private ZdlParallelParser() {
+    }
+
+    /**
+     * Returns the merged model (not post processed nor validated), or <code>null</code> if the source is too small to
+     * be split or any chunk has syntax errors, so it should be parsed sequentially, with the usual error reporting.
+     */
+    public static ZdlModel parse(CharStream zdl, Supplier<ZdlListenerImpl> listeners, ForkJoinPool pool) {
+        var tokens = ZdlRecognizers.tokenize(zdl);
+        var chunks = split(tokens, Math.max(MIN_CHUNK_TOKENS, tokens.size() / (pool.getParallelism() * 4)));
+        if (chunks.size() < 2) {
+            return null;
+        }
+
+        var tasks = new ArrayList<ForkJoinTask<ZdlModel>>(chunks.size());
+        for (var chunk : chunks) {
+            tasks.add(pool.submit(() -> parseChunk(chunk, listeners)));
+        }
+        var models = new ArrayList<ZdlModel>(chunks.size());
+        for (var task : tasks) {
+            models.add(task.join());
+        }
+        if (models.contains(null)) {
+            return null;
+        }
+
+        var model = listeners.get().getModel();
+        for (var chunkModel : models) {
+            ZdlModelMerger.merge(model, chunkModel, 0, 1, 0);
+        }
+        return model;
+    }
+
+    private static ZdlModel parseChunk(List<Token> chunk, Supplier<ZdlListenerImpl> listeners) {
+        var tree = ZdlRecognizers.parseTokens(chunk);
+        if (tree == null) {
+            return null;
+        }
+        var listener = listeners.get();
+        new ParseTreeWalker().walk(listener, tree);
+        return listener.getModel();
+    }
+
+    static List<List<Token>> split(List<Token> tokens, int chunkTokens) {
+        var chunks = new ArrayList<List<Token>>();
+        int depth = 0;
+        int chunkStart = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            var token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            switch (token.getType()) {
+                case ZdlLexer.LBRACE, ZdlLexer.LPAREN, ZdlLexer.LBRACK -> depth++;
+                case ZdlLexer.RPAREN, ZdlLexer.RBRACK -> depth--;
+                case ZdlLexer.RBRACE -> {
+                    if (--depth == 0 && i + 1 - chunkStart >= chunkTokens) {
+                        chunks.add(tokens.subList(chunkStart, i + 1));
+                        chunkStart = i + 1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (chunkStart < tokens.size()) {
+            chunks.add(tokens.subList(chunkStart, tokens.size()));
+        }
+        return chunks;
+    }
+}
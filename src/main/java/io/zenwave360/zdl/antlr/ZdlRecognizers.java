@@ -0,0 +1,337 @@
+package io.zenwave360.zdl.antlr;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Lexer and parser instances recycled per thread, all sharing one DFA cache that can be warmed up, inspected and cleared.
+ * <p>
+ * ANTLR caches the DFA states (and their prediction contexts) it computes while parsing in static fields of the
+ * generated recognizers, which grow for as long as the JVM lives. Recognizers handed out by this class use their own
+ * cache instead, which {@link #clearCache()} replaces with an empty one: parses already running keep using the old
+ * cache, and every thread switches to the new one on its next parse.
+ * <p>
+ * Full parses don't buffer hidden tokens (whitespace, comments and unknown chars), which are about half the tokens of a
+ * source and are never part of the parse tree, see {@link HiddenTokenFilter}.
+ */
+public class ZdlRecognizers {
+
+    private static volatile SharedCache cache = new SharedCache();
+
+    private static final ThreadLocal<ZdlRecognizers> recycled = ThreadLocal.withInitial(ZdlRecognizers::new);
+
+    private final ZdlLexer lexer = new ZdlLexer(null);
+    private final TokenBuffer tokens = new TokenBuffer(lexer);
+    private final ZdlParser parser = new ZdlParser(null);
+    private SharedCache installedCache;
+    private boolean inUse;
+
+    private ZdlRecognizers() {
+    }
+
+    /**
+     * Parses the given source with this thread's recognizers.
+     *
+     * @param twoStageParsing whether to try SLL prediction first, falling back to full LL (with the usual error
+     *                        reporting) only when SLL fails
+     */
+    public static ParseTree parse(CharStream zdl, boolean twoStageParsing) {
+        return withRecognizers(recognizers -> {
+            recognizers.lexer.setInputStream(zdl);
+            recognizers.tokens.presize(zdl.size());
+            return recognizers.doParse(new HiddenTokenFilter(recognizers.lexer), twoStageParsing, true);
+        });
+    }
+
+    /**
+     * Parses a fragment of a larger source, made of complete top level declarations, without reporting errors.
+     * <p>
+     * Returns <code>null</code> if the fragment has syntax errors, or if it ends with an unterminated comment, string or
+     * regex, which could lex differently when followed by the rest of the source.
+     */
+    public static ZdlParser.ZdlContext parseFragment(CharStream zdl) {
+        return withRecognizers(recognizers -> {
+            var tree = recognizers.doParse(zdl, true, false);
+            return recognizers.parser.getNumberOfSyntaxErrors() == 0 && !recognizers.hasUnterminatedTokens() ? tree : null;
+        });
+    }
+
+    /**
+     * Parses a fragment of a larger source that {@link #parseFragment(CharStream)} rejected, recovering from syntax errors
+     * as a full parse does, without reporting them.
+     */
+    public static ZdlParser.ZdlContext recoverFragment(CharStream zdl) {
+        return withRecognizers(recognizers -> recognizers.doParse(zdl, false, false));
+    }
+
+    /**
+     * Lexes the given source with this thread's lexer, returning all tokens (hidden ones included) up to EOF.
+     */
+    public static List<Token> tokenize(CharStream zdl) {
+        return withRecognizers(recognizers -> {
+            recognizers.installCache();
+            recognizers.lexer.setInputStream(zdl);
+            recognizers.tokens.setTokenSource(recognizers.lexer);
+            recognizers.tokens.fill();
+            return new ArrayList<>(recognizers.tokens.getTokens());
+        });
+    }
+
+    /**
+     * Parses a run of tokens from {@link #tokenize(CharStream)}, made of complete top level declarations, without
+     * reporting errors. Positions in the tree are the ones of the tokens in the whole source.
+     * <p>
+     * Returns <code>null</code> if the tokens have syntax errors.
+     */
+    public static ZdlParser.ZdlContext parseTokens(List<Token> tokens) {
+        return withRecognizers(recognizers -> {
+            var tree = recognizers.doParse(new ListTokenSource(tokens), true, false);
+            return recognizers.parser.getNumberOfSyntaxErrors() == 0 ? tree : null;
+        });
+    }
+
+    private static <T> T withRecognizers(Function<ZdlRecognizers, T> parse) {
+        var recognizers = recycled.get();
+        if (recognizers.inUse) {
+            // reentrant call (from an error listener for instance), use a throwaway instance
+            recognizers = new ZdlRecognizers();
+        }
+        recognizers.inUse = true;
+        try {
+            return parse.apply(recognizers);
+        } finally {
+            recognizers.release();
+            recognizers.inUse = false;
+        }
+    }
+
+    /**
+     * Parses the given sources so the shared cache already holds the DFA states they need.
+     */
+    public static void warmUp(String... zdl) {
+        for (String source : zdl) {
+            parse(CharStreams.fromString(source), true);
+        }
+    }
+
+    /**
+     * Number of DFA states in the shared cache, lexer and parser ones.
+     */
+    public static int dfaStateCount() {
+        var current = cache;
+        return SharedCache.stateCount(current.lexerDFA) + SharedCache.stateCount(current.parserDFA);
+    }
+
+    /**
+     * Number of prediction contexts in the shared cache, lexer and parser ones.
+     */
+    public static int predictionContextCount() {
+        var current = cache;
+        return current.lexerContextCache.size() + current.parserContextCache.size();
+    }
+
+    /**
+     * Drops all cached DFA states and prediction contexts, releasing their memory once running parses complete.
+     */
+    public static void clearCache() {
+        cache = new SharedCache();
+    }
+
+    private ZdlParser.ZdlContext doParse(CharStream zdl, boolean twoStageParsing, boolean reportErrors) {
+        lexer.setInputStream(zdl);
+        return doParse(lexer, twoStageParsing, reportErrors);
+    }
+
+    private ZdlParser.ZdlContext doParse(TokenSource tokenSource, boolean twoStageParsing, boolean reportErrors) {
+        installCache();
+        tokens.setTokenSource(tokenSource);
+        parser.setTokenStream(tokens);
+        if (twoStageParsing) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+            try {
+                return parser.zdl();
+            } catch (ParseCancellationException e) {
+                tokens.seek(0);
+                parser.reset();
+            }
+        }
+        parser.removeErrorListeners();
+        if (reportErrors) {
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+        }
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.zdl();
+    }
+
+    private void installCache() {
+        var current = cache;
+        if (installedCache != current) {
+            lexer.setInterpreter(new LexerATNSimulator(lexer, ZdlLexer._ATN, current.lexerDFA, current.lexerContextCache));
+            parser.setInterpreter(new ParserATNSimulator(parser, ZdlParser._ATN, current.parserDFA, current.parserContextCache));
+            installedCache = current;
+        }
+    }
+
+    /**
+     * Unknown chars are hidden by the lexer, which is what happens to the first char of unterminated comments, strings
+     * and regexes.
+     */
+    private boolean hasUnterminatedTokens() {
+        for (var token : tokens.getTokens()) {
+            if (token.getType() == ZdlLexer.ERRCHAR) {
+                var text = token.getText();
+                if (text.startsWith("/") || text.startsWith("\"") || text.startsWith("'")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops references to the last parsed source and its tokens, so they don't outlive the parse.
+     */
+    private void release() {
+        lexer.setInputStream(null);
+        tokens.setTokenSource(lexer);
+        tokens.trim();
+        parser.setTokenStream(null);
+    }
+
+    /**
+     * Token stream whose buffer can be sized for the source before parsing, and shrunk again afterwards so a large source
+     * doesn't leave a large buffer behind in the recycled instance.
+     */
+    private static class TokenBuffer extends CommonTokenStream {
+
+        // visible tokens are one every ten chars or so in typical sources
+        private static final int CHARS_PER_TOKEN = 8;
+        private static final int DEFAULT_CAPACITY = 100;
+
+        TokenBuffer(TokenSource tokenSource) {
+            super(tokenSource);
+        }
+
+        void presize(int chars) {
+            tokens = new ArrayList<>(Math.max(DEFAULT_CAPACITY, chars / CHARS_PER_TOKEN));
+        }
+
+        void trim() {
+            tokens = new ArrayList<>(DEFAULT_CAPACITY);
+        }
+    }
+
+    /**
+     * Token source that drops hidden tokens, except the last one before each <code>JAVADOC</code> token: the parser looks
+     * at it to tell suffix javadoc from the javadoc of the next declaration (see <code>Zdl.g4</code>).
+     * <p>
+     * Hidden tokens are never part of the parse tree, so the tree and the model are the same, only token indexes
+     * differ.
+     */
+    static class HiddenTokenFilter implements TokenSource {
+
+        private final TokenSource source;
+        private Token pending;
+
+        HiddenTokenFilter(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public Token nextToken() {
+            if (pending != null) {
+                var token = pending;
+                pending = null;
+                return token;
+            }
+            Token hidden = null;
+            while (true) {
+                var token = source.nextToken();
+                if (token.getChannel() == Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) {
+                    if (hidden != null && token.getType() == ZdlLexer.JAVADOC) {
+                        pending = token;
+                        return hidden;
+                    }
+                    return token;
+                }
+                hidden = token;
+            }
+        }
+
+        @Override
+        public int getLine() {
+            return source.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return source.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return source.getInputStream();
+        }
+
+        @Override
+        public String getSourceName() {
+            return source.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory) {
+            source.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory() {
+            return source.getTokenFactory();
+        }
+    }
+
+    private static class SharedCache {
+        final DFA[] lexerDFA = newDFA(ZdlLexer._ATN);
+        final DFA[] parserDFA = newDFA(ZdlParser._ATN);
+        final PredictionContextCache lexerContextCache = new PredictionContextCache();
+        final PredictionContextCache parserContextCache = new PredictionContextCache();
+
+        private static DFA[] newDFA(ATN atn) {
+            var dfa = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < dfa.length; i++) {
+                dfa[i] = new DFA(atn.getDecisionState(i), i);
+            }
+            return dfa;
+        }
+
+        private static int stateCount(DFA[] dfa) {
+            int count = 0;
+            for (DFA decision : dfa) {
+                count += decision.states.size();
+            }
+            return count;
+        }
+    }
+}
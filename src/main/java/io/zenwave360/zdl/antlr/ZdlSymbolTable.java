@@ -0,0 +1,77 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names declared in a {@link ZdlModel} indexed by kind, built once per model so type checks are plain hash lookups.
+ */
+class ZdlSymbolTable {
+
+    enum Kind {
+        ENTITY, ENUM, INPUT, OUTPUT, EVENT, AGGREGATE
+    }
+
+    private final Map<Kind, Set<String>> symbols = new EnumMap<>(Kind.class);
+
+    private ZdlSymbolTable() {
+        for (Kind kind : Kind.values()) {
+            symbols.put(kind, new HashSet<>());
+        }
+    }
+
+    static ZdlSymbolTable of(ZdlModel model) {
+        var symbolTable = new ZdlSymbolTable();
+        symbolTable.addAll(Kind.ENTITY, model.getEntities());
+        symbolTable.addAll(Kind.ENUM, model.getEnums());
+        symbolTable.addAll(Kind.INPUT, model.getInputs());
+        symbolTable.addAll(Kind.OUTPUT, model.getOutputs());
+        symbolTable.addAll(Kind.EVENT, model.getEvents());
+        symbolTable.addAll(Kind.AGGREGATE, model.getAggregates());
+        if (model.getEntities() != null) {
+            for (var entity : model.getEntities().entrySet()) {
+                var options = entity.getValue() instanceof Map ? ((Map) entity.getValue()).get("options") : null;
+                if (options instanceof Map && Boolean.TRUE.equals(((Map) options).get("aggregate"))) {
+                    symbolTable.symbols.get(Kind.AGGREGATE).add(entity.getKey());
+                }
+            }
+        }
+        return symbolTable;
+    }
+
+    private void addAll(Kind kind, Map<String, Object> declarations) {
+        if (declarations != null) {
+            symbols.get(kind).addAll(declarations.keySet());
+        }
+    }
+
+    boolean is(Kind kind, String name) {
+        return name != null && symbols.get(kind).contains(name);
+    }
+
+    boolean isEntity(String name) {
+        return is(Kind.ENTITY, name);
+    }
+
+    boolean isEnum(String name) {
+        return is(Kind.ENUM, name);
+    }
+
+    boolean isInput(String name) {
+        return is(Kind.INPUT, name);
+    }
+
+    boolean isOutput(String name) {
+        return is(Kind.OUTPUT, name);
+    }
+
+    boolean isEvent(String name) {
+        return is(Kind.EVENT, name);
+    }
+
+    boolean isAggregate(String name) {
+        return is(Kind.AGGREGATE, name);
+    }
+}
@@ -0,0 +1,347 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Typed, read-only snapshot of a {@link ZdlModel}, for generators that prefer field access and records to navigating
+ * nested maps by key.
+ * <p>
+ * Declarations keep the order of the model. Collections are unmodifiable, but option and validation values are the
+ * same objects found in the model, and so is javadoc, which is only extracted from the source when read if the model was
+ * parsed with lazy javadoc. Cross-references (the declaration of a field type, the relationships and services
+ * of an entity, the aggregate of an aggregate root) are resolved once when the snapshot is built, see
+ * {@link #of(ZdlModel)}.
+ */
+public final class ZdlTypedModel {
+
+    public record Entity(String name, String kind, String className, String tableName, CharSequence javadoc,
+                         Map<String, Object> options, Map<String, Field> fields) {
+    }
+
+    public record Field(String name, String type, Object initialValue, CharSequence javadoc, boolean isEnum,
+                        boolean isEntity, boolean isArray, boolean isComplexType, Map<String, Object> options,
+                        Map<String, Object> validations) {
+    }
+
+    public record Enum(String name, String className, CharSequence javadoc, boolean hasValue,
+                       Map<String, Object> options, Map<String, EnumValue> values) {
+    }
+
+    public record EnumValue(String name, CharSequence javadoc, Object value) {
+    }
+
+    public record Aggregate(String name, String className, CharSequence javadoc, String aggregateRoot,
+                            Map<String, Command> commands) {
+    }
+
+    public record Command(String name, String aggregateName, String parameter, boolean parameterIsOptional,
+                          List<Object> withEvents, CharSequence javadoc) {
+    }
+
+    public record Service(String name, String className, CharSequence javadoc, List<String> aggregates,
+                          boolean isLegacy, Map<String, Object> options, Map<String, Method> methods) {
+    }
+
+    public record Method(String name, String serviceName, CharSequence javadoc, Object naturalId, String paramId,
+                         boolean paramIdIsOptional, String parameter, boolean parameterIsOptional, String returnType,
+                         boolean returnTypeIsArray, boolean returnTypeIsOptional, boolean paginated,
+                         List<Object> withEvents, Map<String, Object> options) {
+    }
+
+    public record Relationship(String type, String name, String from, String injectedFieldInFrom,
+                               CharSequence commentInFrom, String injectedFieldInFromDescription,
+                               boolean isInjectedFieldInFromRequired, Map<String, Object> fromOptions,
+                               Map<String, Object> fromValidations, String to, String injectedFieldInTo,
+                               CharSequence commentInTo, String injectedFieldInToDescription,
+                               boolean isInjectedFieldInToRequired, Map<String, Object> toOptions,
+                               Map<String, Object> toValidations) {
+    }
+
+    public record Api(String name, String type, String role, CharSequence javadoc, Map<String, Object> options,
+                      Map<String, Object> config) {
+    }
+
+    public record Plugin(String name, CharSequence javadoc, boolean disabled, Map<String, Object> options,
+                         Map<String, Object> config) {
+    }
+
+    private final CharSequence javadoc;
+    private final Map<String, Object> config;
+    private final Map<String, Api> apis;
+    private final Map<String, Plugin> plugins;
+    private final Map<String, Aggregate> aggregates;
+    private final Map<String, Entity> entities;
+    private final Map<String, Enum> enums;
+    private final List<Relationship> relationships;
+    private final Map<String, Service> services;
+    private final Map<String, Entity> inputs;
+    private final Map<String, Entity> outputs;
+    private final Map<String, Entity> events;
+
+    private final Map<String, Entity> types = new HashMap<>();
+    private final Map<String, List<Relationship>> relationshipsByEntity = new HashMap<>();
+    private final Map<String, List<Service>> servicesByAggregate = new HashMap<>();
+    private final Map<String, Aggregate> aggregatesByRoot = new HashMap<>();
+
+    private ZdlTypedModel(ZdlModel model) {
+        javadoc = javadoc(model.get("javadoc"));
+        config = options(model.get("config"));
+        apis = declarations(model.get("apis"), ZdlTypedModel::api);
+        plugins = declarations(model.get("plugins"), ZdlTypedModel::plugin);
+        aggregates = declarations(model.get("aggregates"), ZdlTypedModel::aggregate);
+        entities = declarations(model.get("entities"), ZdlTypedModel::entity);
+        enums = declarations(model.get("enums"), ZdlTypedModel::enumType);
+        services = declarations(model.get("services"), ZdlTypedModel::service);
+        inputs = declarations(model.get("inputs"), ZdlTypedModel::entity);
+        outputs = declarations(model.get("outputs"), ZdlTypedModel::entity);
+        events = declarations(model.get("events"), ZdlTypedModel::entity);
+        var relationships = new ArrayList<Relationship>();
+        for (var byType : maps(model.get("relationships")).values()) {
+            relationships.addAll(declarations(byType, ZdlTypedModel::relationship).values());
+        }
+        this.relationships = Collections.unmodifiableList(relationships);
+
+        // entities win over inputs, outputs and events with the same name, as in type resolution
+        for (var declarations : List.of(events, outputs, inputs, entities)) {
+            types.putAll(declarations);
+        }
+        for (var relationship : relationships) {
+            // ends are missing in models recovered from syntax errors
+            if (relationship.from() != null) {
+                relationshipsByEntity.computeIfAbsent(relationship.from(), name -> new ArrayList<>()).add(relationship);
+            }
+            if (relationship.to() != null && !Objects.equals(relationship.to(), relationship.from())) {
+                relationshipsByEntity.computeIfAbsent(relationship.to(), name -> new ArrayList<>()).add(relationship);
+            }
+        }
+        for (var service : services.values()) {
+            for (var aggregate : service.aggregates()) {
+                servicesByAggregate.computeIfAbsent(aggregate, name -> new ArrayList<>()).add(service);
+            }
+        }
+        for (var aggregate : aggregates.values()) {
+            if (aggregate.aggregateRoot() != null) {
+                aggregatesByRoot.putIfAbsent(aggregate.aggregateRoot(), aggregate);
+            }
+        }
+    }
+
+    /**
+     * Builds a snapshot of the model as it is now (usually after post processing and validation); later changes to the
+     * model are not seen by it.
+     */
+    public static ZdlTypedModel of(ZdlModel model) {
+        return new ZdlTypedModel(model);
+    }
+
+    public CharSequence getJavadoc() {
+        return javadoc;
+    }
+
+    public Map<String, Object> getConfig() {
+        return config;
+    }
+
+    public Map<String, Api> getApis() {
+        return apis;
+    }
+
+    public Map<String, Plugin> getPlugins() {
+        return plugins;
+    }
+
+    public Map<String, Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    public Map<String, Entity> getEntities() {
+        return entities;
+    }
+
+    public Map<String, Enum> getEnums() {
+        return enums;
+    }
+
+    public List<Relationship> getRelationships() {
+        return relationships;
+    }
+
+    public Map<String, Service> getServices() {
+        return services;
+    }
+
+    public Map<String, Entity> getInputs() {
+        return inputs;
+    }
+
+    public Map<String, Entity> getOutputs() {
+        return outputs;
+    }
+
+    public Map<String, Entity> getEvents() {
+        return events;
+    }
+
+    /**
+     * Finds an entity, input, output or event by name.
+     */
+    public Optional<Entity> getType(String name) {
+        return Optional.ofNullable(types.get(name));
+    }
+
+    /**
+     * Returns the entity, input, output or event declaring the type of the field, if it's not a standard type nor an
+     * enum.
+     */
+    public Optional<Entity> getFieldType(Field field) {
+        return getType(field.type());
+    }
+
+    public Optional<Enum> getFieldEnum(Field field) {
+        return Optional.ofNullable(enums.get(field.type()));
+    }
+
+    /**
+     * Relationships from or to the given entity, in declaration order.
+     */
+    public List<Relationship> getRelationships(String entityName) {
+        return Collections.unmodifiableList(relationshipsByEntity.getOrDefault(entityName, List.of()));
+    }
+
+    /**
+     * Services for the given entity or aggregate, in declaration order.
+     */
+    public List<Service> getServices(String entityOrAggregateName) {
+        return Collections.unmodifiableList(servicesByAggregate.getOrDefault(entityOrAggregateName, List.of()));
+    }
+
+    /**
+     * The aggregate with the given entity as aggregate root.
+     */
+    public Optional<Aggregate> getAggregate(String aggregateRootName) {
+        return Optional.ofNullable(aggregatesByRoot.get(aggregateRootName));
+    }
+
+    private static Entity entity(Map<String, Object> entity) {
+        return new Entity(text(entity.get("name")), text(entity.get("type")), text(entity.get("className")),
+                text(entity.get("tableName")), javadoc(entity.get("javadoc")), options(entity.get("options")),
+                declarations(entity.get("fields"), ZdlTypedModel::field));
+    }
+
+    private static Field field(Map<String, Object> field) {
+        return new Field(text(field.get("name")), text(field.get("type")), field.get("initialValue"),
+                javadoc(field.get("javadoc")), flag(field.get("isEnum")), flag(field.get("isEntity")),
+                flag(field.get("isArray")), flag(field.get("isComplexType")), options(field.get("options")),
+                validations(field.get("validations")));
+    }
+
+    private static Enum enumType(Map<String, Object> enumType) {
+        return new Enum(text(enumType.get("name")), text(enumType.get("className")), javadoc(enumType.get("javadoc")),
+                flag(enumType.get("hasValue")), options(enumType.get("options")),
+                declarations(enumType.get("values"), value -> new EnumValue(text(value.get("name")),
+                        javadoc(value.get("javadoc")), value.get("value"))));
+    }
+
+    private static Aggregate aggregate(Map<String, Object> aggregate) {
+        return new Aggregate(text(aggregate.get("name")), text(aggregate.get("className")),
+                javadoc(aggregate.get("javadoc")), text(aggregate.get("aggregateRoot")),
+                declarations(aggregate.get("commands"), command -> new Command(text(command.get("name")),
+                        text(command.get("aggregateName")), text(command.get("parameter")),
+                        flag(command.get("parameterIsOptional")), list(command.get("withEvents")),
+                        javadoc(command.get("javadoc")))));
+    }
+
+    private static Service service(Map<String, Object> service) {
+        var aggregates = new ArrayList<String>();
+        for (var aggregate : list(service.get("aggregates"))) {
+            aggregates.add(text(aggregate));
+        }
+        return new Service(text(service.get("name")), text(service.get("className")), javadoc(service.get("javadoc")),
+                Collections.unmodifiableList(aggregates), flag(service.get("isLegacy")), options(service.get("options")),
+                declarations(service.get("methods"), ZdlTypedModel::method));
+    }
+
+    private static Method method(Map<String, Object> method) {
+        return new Method(text(method.get("name")), text(method.get("serviceName")), javadoc(method.get("javadoc")),
+                method.get("naturalId"), text(method.get("paramId")), flag(method.get("paramIdIsOptional")),
+                text(method.get("parameter")), flag(method.get("parameterIsOptional")), text(method.get("returnType")),
+                flag(method.get("returnTypeIsArray")), flag(method.get("returnTypeIsOptional")),
+                flag(method.get("paginated")), list(method.get("withEvents")), options(method.get("options")));
+    }
+
+    private static Relationship relationship(Map<String, Object> relationship) {
+        return new Relationship(text(relationship.get("type")), text(relationship.get("name")),
+                text(relationship.get("from")), text(relationship.get("injectedFieldInFrom")),
+                javadoc(relationship.get("commentInFrom")), text(relationship.get("injectedFieldInFromDescription")),
+                flag(relationship.get("isInjectedFieldInFromRequired")), options(relationship.get("fromOptions")),
+                validations(relationship.get("fromValidations")), text(relationship.get("to")),
+                text(relationship.get("injectedFieldInTo")), javadoc(relationship.get("commentInTo")),
+                text(relationship.get("injectedFieldInToDescription")),
+                flag(relationship.get("isInjectedFieldInToRequired")), options(relationship.get("toOptions")),
+                validations(relationship.get("toValidations")));
+    }
+
+    private static Api api(Map<String, Object> api) {
+        return new Api(text(api.get("name")), text(api.get("type")), text(api.get("role")), javadoc(api.get("javadoc")),
+                options(api.get("options")), options(api.get("config")));
+    }
+
+    private static Plugin plugin(Map<String, Object> plugin) {
+        return new Plugin(text(plugin.get("name")), javadoc(plugin.get("javadoc")), flag(plugin.get("disabled")),
+                options(plugin.get("options")), options(plugin.get("config")));
+    }
+
+    private static <T> Map<String, T> declarations(Object declarations, Function<Map<String, Object>, T> factory) {
+        var typed = new LinkedHashMap<String, T>();
+        for (var declaration : maps(declarations).entrySet()) {
+            typed.put(declaration.getKey(), factory.apply(declaration.getValue()));
+        }
+        return Collections.unmodifiableMap(typed);
+    }
+
+    private static Map<String, Map<String, Object>> maps(Object maps) {
+        return maps instanceof Map ? (Map<String, Map<String, Object>>) maps : Map.of();
+    }
+
+    private static Map<String, Object> options(Object options) {
+        return options instanceof Map ? Collections.unmodifiableMap(new LinkedHashMap<>((Map<String, Object>) options)) : Map.of();
+    }
+
+    /**
+     * Validation values by validation name.
+     */
+    private static Map<String, Object> validations(Object validations) {
+        var typed = new LinkedHashMap<String, Object>();
+        for (var validation : maps(validations).entrySet()) {
+            typed.put(validation.getKey(), validation.getValue().get("value"));
+        }
+        return Collections.unmodifiableMap(typed);
+    }
+
+    private static List<Object> list(Object list) {
+        return list instanceof List ? Collections.unmodifiableList(new ArrayList<>((List<Object>) list)) : List.of();
+    }
+
+    private static String text(Object text) {
+        return text != null ? text.toString() : null;
+    }
+
+    /**
+     * Javadoc is kept as found in the model, so a lazy {@link ZdlJavadoc} is only extracted from the source when read.
+     */
+    private static CharSequence javadoc(Object javadoc) {
+        return javadoc instanceof CharSequence text ? text : null;
+    }
+
+    private static boolean flag(Object flag) {
+        return Boolean.TRUE.equals(flag);
+    }
+}
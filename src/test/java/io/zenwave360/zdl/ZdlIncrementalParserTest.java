@@ -0,0 +1,146 @@
+package io.zenwave360.zdl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.zenwave360.zdl.antlr.ZdlModel;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZdlIncrementalParserTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void editsSameAsFullParse() throws Exception {
+        var zdl = CharStreams.fromFileName("src/test/resources/complete.zdl").toString();
+        var incremental = new ZdlIncrementalParser();
+        var parsed = incremental.parseModel(zdl);
+        var untouched = section(parsed, "events").get("EventWithNestedOutputs");
+
+        // renaming and deleting declarations, which are replaced in the same model
+        int customer = incremental.getText().indexOf("entity CustomerOrder ") + "entity ".length();
+        var model = incremental.applyEdit(customer, customer + "CustomerOrder".length(), "ClientOrder");
+        assertIncrementalSameAsFullParse(incremental, model);
+        assertSame(parsed, model);
+        assertTrue(section(model, "entities").containsKey("ClientOrder"));
+
+        int entity = incremental.getText().indexOf("@aggregate\nentity ClientOrder ");
+        int end = incremental.getText().indexOf("\n}", entity) + 2;
+        model = incremental.applyEdit(entity, end, "");
+        assertIncrementalSameAsFullParse(incremental, model);
+
+        model = incremental.applyEdit(1, 0, 1, 0, "/* line 1 */");
+        assertIncrementalSameAsFullParse(incremental, model);
+        assertSame(untouched, section(model, "events").get("EventWithNestedOutputs"));
+
+        // breaking a declaration, editing another one while it's broken and fixing it
+        model = incremental.applyEdit(entity, entity, "entity Broken {");
+        assertTrue(incremental.hasSyntaxErrors());
+        assertSame(untouched, section(model, "events").get("EventWithNestedOutputs"));
+        int status = incremental.getText().indexOf("enum OrderStatus ") + "enum ".length();
+        model = incremental.applyEdit(status, status + "OrderStatus".length(), "Status");
+        assertTrue(incremental.hasSyntaxErrors());
+        assertTrue(section(model, "enums").containsKey("Status"));
+        model = incremental.applyEdit(entity, entity + "entity Broken {".length(), "");
+        assertFalse(incremental.hasSyntaxErrors());
+        assertIncrementalSameAsFullParse(incremental, model);
+        assertSame(untouched, section(model, "events").get("EventWithNestedOutputs"));
+
+        // a comment opened in one declaration and closed in a later one
+        int input = incremental.getText().indexOf("input KitchenStatusInput ");
+        model = incremental.applyEdit(input, input, "/*");
+        assertTrue(incremental.hasSyntaxErrors());
+        int service = incremental.getText().indexOf("@rest(\"/orders\")");
+        model = incremental.applyEdit(service, service, "*/");
+        assertFalse(incremental.hasSyntaxErrors());
+        assertIncrementalSameAsFullParse(incremental, model);
+        assertFalse(section(model, "inputs").containsKey("KitchenStatusInput"));
+        model = incremental.applyEdit(service, service + 2, "");
+        model = incremental.applyEdit(input, input + 2, "");
+        assertFalse(incremental.hasSyntaxErrors());
+        assertIncrementalSameAsFullParse(incremental, model);
+
+        // whitespace and comments at line ends (non BMP chars shift columns and chars differently), and new declarations
+        // between top level ones
+        var whitespace = List.of(" ", "\n", "\n\n", "// comment \uD83D\uDE00\n");
+        var declarations = List.of("entity Added { name String }\n", "/** javadoc */\nenum AddedEnum { A, B }\n");
+        var random = new Random(11);
+        for (int i = 0; i < 60; i++) {
+            var text = incremental.getText();
+            var snippets = random.nextBoolean() ? whitespace : declarations;
+            var boundary = snippets == whitespace ? "\n" : "\n}\n";
+            int start = text.indexOf(boundary, random.nextInt(text.length()));
+            start = start >= 0 ? start + boundary.length() : text.length();
+            model = incremental.applyEdit(start, start, snippets.get(random.nextInt(snippets.size())));
+            assertFalse(incremental.hasSyntaxErrors(), "edit " + i);
+            assertIncrementalSameAsFullParse(incremental, model);
+        }
+
+        // problems of other declarations, relationship problems (reported by type) and new sections
+        model = incremental.parseModel(CharStreams.fromFileName("src/test/resources/problems.zdl").toString());
+        assertIncrementalSameAsFullParse(incremental, model);
+        customer = incremental.getText().indexOf("entity CustomerOrder ") + "entity CustomerOrder".length();
+        model = incremental.applyEdit(customer, customer, "X");
+        assertIncrementalSameAsFullParse(incremental, model);
+        int relationship = incremental.getText().indexOf("relationship ManyToMany {");
+        model = incremental.applyEdit(relationship, relationship, "relationship OneToMany {\n    Customer{others} to AddressY\n}\n"
+                + "relationship ManyToOne {\n    Customer{other} to AddressZ\n}\n");
+        assertIncrementalSameAsFullParse(incremental, model);
+        // only the last declaration of a repeated name is validated
+        model = incremental.applyEdit(relationship, relationship, "entity Repeated { name Unknown }\nentity Repeated { name String }\n");
+        assertIncrementalSameAsFullParse(incremental, model);
+        model = incremental.applyEdit(relationship, relationship, "policies {\n    name \"body\"\n}\n");
+        assertIncrementalSameAsFullParse(incremental, model);
+        assertEquals("body", JsonPath.read(model, "$.policies.name.value"));
+    }
+
+    @Test
+    public void unterminatedStringsAndCommentsRecover() throws Exception {
+        var zdl = CharStreams.fromFileName("src/test/resources/complete.zdl").toString();
+        var incremental = new ZdlIncrementalParser();
+        incremental.parseModel(zdl);
+        // inside the config (with its plugins) and apis blocks
+        int from = zdl.indexOf("config {");
+        int to = zdl.indexOf("\n}\n", zdl.indexOf("apis {")) + 2;
+        for (var typed : List.of("\"", "/*", "*/")) {
+            for (int position = from; position < to; position += 11) {
+                incremental.applyEdit(position, position, typed);
+                var model = incremental.applyEdit(position, position + typed.length(), "");
+                assertFalse(incremental.hasSyntaxErrors(), typed + " at " + position);
+                assertEquals(zdl, incremental.getText());
+                assertIncrementalSameAsFullParse(incremental, model);
+            }
+        }
+
+        // typing a comment and a string char by char
+        int plugin = zdl.indexOf("ZDLToOpenAPIPlugin {") + "ZDLToOpenAPIPlugin {".length();
+        for (var typed : List.of("/* comment */", "\n            title \"{{title}}\"")) {
+            for (int i = 0; i < typed.length(); i++) {
+                incremental.applyEdit(plugin + i, plugin + i, typed.substring(i, i + 1));
+            }
+            assertFalse(incremental.hasSyntaxErrors(), typed);
+            assertIncrementalSameAsFullParse(incremental, incremental.getModel());
+        }
+    }
+
+    private void assertIncrementalSameAsFullParse(ZdlIncrementalParser incremental, ZdlModel model) throws IOException {
+        var fullParse = new ZdlParser().parseModel(incremental.getText());
+        assertEquals(fullParse.getLocation(100, 8), model.getLocation(100, 8));
+        assertEquals(mapper.writeValueAsString(fullParse), mapper.writeValueAsString(model));
+    }
+
+
+    private static Map<?, ?> section(ZdlModel model, String name) {
+        return (Map<?, ?>) model.get(name);
+    }
+}
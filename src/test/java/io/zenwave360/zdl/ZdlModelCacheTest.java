@@ -0,0 +1,89 @@
+package io.zenwave360.zdl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.zenwave360.zdl.antlr.Inflector;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ZdlModelCacheTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void parseModelCached(@TempDir Path dir) throws Exception {
+        var zdl = CharStreams.fromFileName("src/test/resources/complete.zdl").toString();
+        var cache = new ZdlModelCache(dir.resolve("cache"), 10_000_000);
+        var expected = mapper.writeValueAsString(new ZdlParser().parseModel(zdl));
+
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().withCache(cache).parseModel(zdl)));
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().withCache(cache).parseModel(zdl)));
+        assertEquals(1, listFiles(cache.getDirectory()).size());
+        new ZdlParser().withCache(cache).withExtraFieldTypes(List.of("Money")).parseModel(zdl);
+        assertEquals(2, listFiles(cache.getDirectory()).size());
+
+        // the least recently used entries are evicted
+        var small = new ZdlModelCache(dir.resolve("small"), Files.size(listFiles(cache.getDirectory()).get(0)));
+        new ZdlParser().withCache(small).parseModel(zdl);
+        new ZdlParser().withCache(small).withLocations(false).parseModel(zdl);
+        assertEquals(1, listFiles(small.getDirectory()).size());
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().withCache(small).parseModel(zdl)));
+    }
+
+    @Test
+    public void parseModelCachedFromPathAndReader(@TempDir Path dir) throws Exception {
+        // files and readers are hashed without reading them into a string, with the same key as the string
+        var zdl = dir.resolve("unicode.zdl");
+        Files.writeString(zdl, "// \u00FC\u20AC\uD83D\uDE00\n".repeat(3000) + "entity A { name String }\n");
+        var cache = new ZdlModelCache(dir.resolve("cache"), 10_000_000);
+        var expected = mapper.writeValueAsString(new ZdlParser().withCache(cache).parseModel(Files.readString(zdl)));
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().withCache(cache).parseModel(zdl)));
+        try (var reader = Files.newBufferedReader(zdl)) {
+            assertEquals(expected, mapper.writeValueAsString(new ZdlParser().withCache(cache).parseModel(reader)));
+        }
+        assertEquals(1, listFiles(cache.getDirectory()).size());
+    }
+
+    @Test
+    public void parseModelCachedWithCustomInflector(@TempDir Path dir) throws Exception {
+        var zdl = "service CustomerOrder with OrderService";
+        var cache = new ZdlModelCache(dir, 10_000_000);
+        var path = "$.services.OrderService.methods.getCustomerOrder.options.get";
+        assertEquals("/customerorders/{customerOrderId}", JsonPath.read(new ZdlParser().withCache(cache).parseModel(zdl), path));
+
+        var defaultInstance = Inflector.getInstance();
+        try {
+            // other rules are other cache entries
+            Inflector.setInstance(Inflector.builder().addIrregular("order", "orderz").build());
+            assertEquals("/customerorderz/{customerOrderId}", JsonPath.read(new ZdlParser().withCache(cache).parseModel(zdl), path));
+            assertEquals(2, listFiles(dir).size());
+
+            // subclasses are not cached
+            Inflector.setInstance(new Inflector() {
+                @Override
+                public String pluralize(Object word) {
+                    return "Things";
+                }
+            });
+            assertEquals("/things/{customerOrderId}", JsonPath.read(new ZdlParser().withCache(cache).parseModel(zdl), path));
+            assertEquals(2, listFiles(dir).size());
+        } finally {
+            Inflector.setInstance(defaultInstance);
+        }
+        assertEquals("/customerorders/{customerOrderId}", JsonPath.read(new ZdlParser().withCache(cache).parseModel(zdl), path));
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+}
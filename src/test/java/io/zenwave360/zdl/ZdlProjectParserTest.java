@@ -0,0 +1,83 @@
+package io.zenwave360.zdl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.zenwave360.zdl.antlr.ZdlModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ZdlProjectParserTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void parseProjectWithImports(@TempDir Path dir) throws Exception {
+        Files.createDirectories(dir.resolve("orders"));
+        Files.writeString(dir.resolve("common.zdl"), "enum Currency { EUR, USD }\nentity Money { amount BigDecimal currency Currency }\n");
+        Files.writeString(dir.resolve("orders/orders.zdl"), "@import(\"../common.zdl\")\nentity Order { total Money }\n");
+        Files.writeString(dir.resolve("main.zdl"), """
+                @import("com.example:artifact:RELEASE")
+                @import("common.zdl")
+                @import("orders/orders.zdl")
+                entity Customer {
+                    currency Currency
+                    orders Order[]
+                }
+                """);
+
+        var project = new ZdlProjectParser();
+        ZdlModel model = project.parseProject(dir.resolve("main.zdl"));
+        assertEquals(List.of("Money", "Order", "Customer"), new ArrayList<>(((Map<?, ?>) model.get("entities")).keySet()));
+        assertEquals(List.of(), model.getProblems());
+        assertEquals(true, JsonPath.read(model, "$.entities.Customer.fields.currency.isEnum"));
+        assertEquals(4, ((List<?>) model.get("imports")).size());
+        assertNotNull(((Map<?, ?>) model.get("locations")).get("entities.Customer"));
+        assertNull(((Map<?, ?>) model.get("locations")).get("entities.Order"));
+
+        // unchanged files come from the cache, copied so returned models don't share declarations
+        var json = mapper.writeValueAsString(model);
+        JsonPath.<Map<?, ?>>read(model, "$.entities.Money.fields").clear();
+        ZdlModel cached = project.parseProject(dir.resolve("main.zdl"));
+        assertNotSame(JsonPath.read(model, "$.entities.Money"), JsonPath.read(cached, "$.entities.Money"));
+        assertEquals(json, mapper.writeValueAsString(cached));
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var parses = new ArrayList<Future<String>>();
+            for (int i = 0; i < 16; i++) {
+                parses.add(executor.submit(() -> mapper.writeValueAsString(project.parseProject(dir.resolve("main.zdl")))));
+            }
+            for (var parse : parses) {
+                assertEquals(json, parse.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // changed files are parsed again
+        Files.writeString(dir.resolve("orders/orders.zdl"), "@import(\"../common.zdl\")\nentity Order { total Money, customer Customer }\n");
+        ZdlModel changed = project.parseProject(dir.resolve("main.zdl"));
+        assertEquals(2, JsonPath.<Map<?, ?>>read(changed, "$.entities.Order.fields").size());
+
+        // problems in imported files are reported with their file and their location in it
+        Files.writeString(dir.resolve("orders/orders.zdl"), "@import(\"../common.zdl\")\nentity Order {\n  total Amount\n}\n");
+        ZdlModel broken = project.parseProject(dir.resolve("main.zdl"));
+        assertEquals(1, broken.getProblems().size());
+        assertEquals("entities.Order.fields.total.type", JsonPath.read(broken, "$.problems[0].path"));
+        assertEquals(dir.resolve("orders/orders.zdl").toString(), JsonPath.read(broken, "$.problems[0].source"));
+        assertArrayEquals(new int[] {48, 54, 3, 8, 3, 14}, JsonPath.<int[]>read(broken, "$.problems[0].location"));
+    }
+}
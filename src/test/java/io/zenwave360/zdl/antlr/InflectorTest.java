@@ -0,0 +1,221 @@
+package io.zenwave360.zdl.antlr;
+
+import io.zenwave360.zdl.ZdlParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import static io.zenwave360.zdl.antlr.JSONPath.get;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InflectorTest {
+
+    @Test
+    public void memoizedResultsFollowRuleChanges() {
+        var inflector = new Inflector();
+        assertEquals("CustomerOrders", inflector.pluralize("CustomerOrder"));
+        assertEquals("CustomerOrders", inflector.pluralize(" CustomerOrder "));
+        assertEquals("customer-order", inflector.kebabCase("CustomerOrder"));
+        assertEquals("customer_order", inflector.underscore("CustomerOrder"));
+        assertEquals("customerOrder", inflector.lowerCamelCase("customer_order"));
+        assertEquals("CustomerOrder", inflector.upperCamelCase("customer_order"));
+        assertEquals("CustomerOrder", inflector.upperCamelCase("customer-order", '-'));
+
+        inflector.addIrregular("order", "orderz");
+        assertEquals("CustomerOrderz", inflector.pluralize("CustomerOrder"));
+        assertEquals("CustomerOrder", inflector.singularize("CustomerOrderz"));
+        inflector.getUncountables().add("customerorder");
+        assertEquals("CustomerOrder", inflector.pluralize("CustomerOrder"));
+        inflector.getUncountables().remove("customerorder");
+        assertEquals("CustomerOrderz", inflector.pluralize("CustomerOrder"));
+        inflector.clear();
+        assertEquals("CustomerOrder", inflector.pluralize("CustomerOrder"));
+    }
+
+    @Test
+    public void sameAsRegexImplementation() {
+        var alphabet = "aAbBzZiIx09_-. \t\n\u2028\u00df\u00e9\u00c9\u03a3\u0130\u0131$\\\ud83d\ude00\ud83d";
+        var words = new ArrayList<>(List.of("", "  ", "_", "__", "_id", "a_id", "author_id", "x_id\u2028", "ActiveRecord",
+                "HTMLParser", "getHTTPResponseCode", "first_name", "The.firstName", "the-first_name", "CustomerOrder", "a__b"));
+        var random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            var word = new StringBuilder();
+            for (int length = random.nextInt(12); length > 0; length--) {
+                word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            words.add(word.toString());
+        }
+        var defaultLocale = Locale.getDefault();
+        try {
+            for (var locale : List.of(Locale.ROOT, Locale.forLanguageTag("tr"))) {
+                Locale.setDefault(locale);
+                var inflector = new Inflector();
+                for (var word : words) {
+                    assertEquals(legacyUnderscore(word), inflector.underscore(word), word);
+                    assertEquals(legacyUnderscore(word, '.', '$').replace('_', '-'), inflector.kebabCase(word, '.', '$'), word);
+                    assertEquals(legacyHumanize(word), inflector.humanize(word), word);
+                    if (!word.contains("$") && !word.contains("\\")) { // used to throw
+                        assertEquals(legacyCamelCase(word, true), inflector.upperCamelCase(word), word);
+                        assertEquals(legacyCamelCase(word, false), inflector.lowerCamelCase(word), word);
+                        assertEquals(legacyCamelCase(word, true, '.', '-'), inflector.upperCamelCase(word, '.', '-'), word);
+                    }
+                }
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void builderAndSharedInstance() throws Exception {
+        var inflector = Inflector.builder().addIrregular("order", "orderz").addUncountable("Customer").build();
+        assertEquals("CustomerOrderz", inflector.pluralize("CustomerOrder"));
+        assertEquals("Customer", inflector.pluralize("Customer"));
+        assertEquals("Addresses", inflector.pluralize("Address"));
+        assertEquals("CustomerOrders", new Inflector().pluralize("CustomerOrder"));
+        assertEquals("CustomerOrder", Inflector.builder().clear().build().pluralize("CustomerOrder"));
+        var copy = inflector.toBuilder().addIrregular("order", "orders").build();
+        assertEquals("CustomerOrders", copy.pluralize("CustomerOrder"));
+        assertEquals("CustomerOrderz", inflector.pluralize("CustomerOrder"));
+
+        var defaultInstance = Inflector.getInstance();
+        try {
+            Inflector.setInstance(inflector);
+            var model = new ZdlParser().parseModel("service CustomerOrder with OrderService");
+            assertEquals("/customerorderz/{customerOrderId}", get(model, "$.services.OrderService.methods.getCustomerOrder.options.get"));
+        } finally {
+            Inflector.setInstance(defaultInstance);
+        }
+
+        // concurrent changes are never seen half done
+        var shared = new Inflector();
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var reader = pool.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    var plural = shared.pluralize("Item" + i);
+                    assertTrue(plural.equals("Item" + i + "s") || plural.equals("Item" + i + "z"), plural);
+                }
+            });
+            var writer = pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    shared.addPluralize("([0-9])$", "$1z");
+                    shared.getUncountables().add("x" + i);
+                }
+            });
+            writer.get();
+            reader.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void ruleIndexSameAsRegexRules() {
+        var inflector = new RecordingInflector();
+        inflector.addIrregular("order", "orderz");
+        inflector.addPluralize("(ve)rtex$", "$1rtices");
+        inflector.addSingularize("([^aeiouy])oes$", "$1o");
+        inflector.addPluralize("(bc|abc)$", "$1X$1");
+
+        var words = new ArrayList<>(List.of("post", "octopus", "sheep", "words", "the blue mailman", "CamelOctopus",
+                "person", "man", "child", "sex", "move", "stadium", "analysis", "bus", "tomato", "quiz", "ox", "mouse",
+                "matrix", "vertex", "index", "wife", "wolf", "hive", "fly", "query", "box", "church", "class", "dish",
+                "datum", "axis", "testis", "virus", "alias", "status", "news", "series", "movie", "shoe", "crisis",
+                "diagnosis", "CustomerOrder", "Address", "abc", "xab", "ox\u2028", "mouse\u2028", "a|ice"));
+        var random = new Random(42);
+        var alphabet = "aeiostuxyzhcfvlrmnqbpdkIESXYOM|";
+        for (int i = 0; i < 2000; i++) {
+            var word = new StringBuilder();
+            for (int length = 1 + random.nextInt(8); length > 0; length--) {
+                word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            words.add(word.toString());
+        }
+        for (var word : List.copyOf(words)) {
+            words.add(word.toUpperCase());
+            words.add("Customer" + inflector.pluralize(word));
+        }
+        for (var word : words) {
+            assertEquals(applyRules(inflector.plurals, word), inflector.pluralize(word), word);
+            assertEquals(applyRules(inflector.singulars, word), inflector.singularize(word), word);
+        }
+    }
+
+    private static final Map<String, Pattern> PATTERNS = new HashMap<>();
+
+    private static String applyRules(List<String[]> rules, String word) {
+        word = word.trim();
+        if (word.isEmpty() || new Inflector().isUncountable(word)) return word;
+        for (var rule : rules) {
+            var matcher = PATTERNS.computeIfAbsent(rule[0], regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE)).matcher(word);
+            if (matcher.find()) return matcher.replaceAll(rule[1]);
+        }
+        return word;
+    }
+
+    /**
+     * Records the rules, first the ones tried first.
+     */
+    private static class RecordingInflector extends Inflector {
+        List<String[]> plurals;
+        List<String[]> singulars;
+
+        @Override
+        public void addPluralize(String rule, String replacement) {
+            super.addPluralize(rule, replacement);
+            plurals = plurals == null ? new ArrayList<>() : plurals;
+            plurals.add(0, new String[] {rule, replacement});
+        }
+
+        @Override
+        public void addSingularize(String rule, String replacement) {
+            super.addSingularize(rule, replacement);
+            singulars = singulars == null ? new ArrayList<>() : singulars;
+            singulars.add(0, new String[] {rule, replacement});
+        }
+    }
+
+    private static String legacyUnderscore(String camelCaseWord, char... delimiterChars) {
+        String result = camelCaseWord.trim();
+        if (result.length() == 0) return "";
+        result = result.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2");
+        result = result.replaceAll("([a-z\\d])([A-Z])", "$1_$2");
+        result = result.replace('-', '_');
+        for (char delimiterChar : delimiterChars) {
+            result = result.replace(delimiterChar, '_');
+        }
+        return result.toLowerCase();
+    }
+
+    private static String legacyCamelCase(String lowerCaseAndUnderscoredWord, boolean uppercaseFirstLetter, char... delimiterChars) {
+        lowerCaseAndUnderscoredWord = lowerCaseAndUnderscoredWord.trim();
+        if (lowerCaseAndUnderscoredWord.length() == 0) return "";
+        if (uppercaseFirstLetter) {
+            String result = lowerCaseAndUnderscoredWord;
+            for (char delimiterChar : delimiterChars) {
+                result = result.replace(delimiterChar, '_');
+            }
+            return Inflector.replaceAllWithUppercase(result, "(^|_)(.)", 2);
+        }
+        if (lowerCaseAndUnderscoredWord.length() < 2) return lowerCaseAndUnderscoredWord;
+        return "" + Character.toLowerCase(lowerCaseAndUnderscoredWord.charAt(0))
+                + legacyCamelCase(lowerCaseAndUnderscoredWord, true, delimiterChars).substring(1);
+    }
+
+    private static String legacyHumanize(String lowerCaseAndUnderscoredWords) {
+        String result = lowerCaseAndUnderscoredWords.trim();
+        if (result.length() == 0) return "";
+        result = result.replaceAll("_id$", "");
+        result = result.replaceAll("_+", " ");
+        return new Inflector().capitalize(result);
+    }
+}
@@ -3,18 +3,37 @@ package io.zenwave360.zdl.antlr;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.zenwave360.zdl.ZdlParser;
 import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static io.zenwave360.zdl.antlr.JSONPath.get;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ZdlListenerTest {
@@ -57,6 +76,79 @@ public class ZdlListenerTest {
 //        assertEquals("entities.Customer.fields.avatar", location);
     }
 
+    @Test
+    public void getFindLocation_SameAsLinearScan() throws Exception {
+        ZdlModel model = parseZdl("src/test/resources/complete.zdl");
+        var lines = Files.readAllLines(Path.of("src/test/resources/complete.zdl"));
+        for (int line = 1; line <= lines.size() + 1; line++) {
+            int lineLength = line <= lines.size()? lines.get(line - 1).length() : 0;
+            for (int character = 0; character <= lineLength + 1; character++) {
+                assertEquals(findLocationLinearScan(model, line, character), model.getLocation(line, character), "at " + line + ":" + character);
+            }
+        }
+    }
+
+    @Test
+    public void locations_CompactStoreSameAsMaterializedMap() throws Exception {
+        var compact = parseZdl("src/test/resources/complete.zdl").getLocations();
+        var materialized = new LinkedHashMap<>(parseZdl("src/test/resources/complete.zdl").getLocations());
+        assertEquals(materialized.size(), compact.size());
+        for (var entry : materialized.entrySet()) {
+            assertArrayEquals((int[]) entry.getValue(), (int[]) compact.get(entry.getKey()), entry.getKey());
+        }
+        assertNull(compact.get("entities.NotAnEntity"));
+
+        var locations = new ZdlLocations();
+        var paths = List.of("", "a", "a.b", ".a", "a.", "a..b", "services.S.methods.m.withEvents.0");
+        paths.forEach(path -> locations.put(path, new int[] { 1, 2, 3, 4, 5, path.length() }));
+        locations.put("a.b", new int[] { 6, 6, 6, 6, 6, 6 });
+        assertEquals(paths.size(), locations.size());
+        assertArrayEquals(new int[] { 6, 6, 6, 6, 6, 6 }, (int[]) locations.get("a.b"));
+        assertEquals(paths, new ArrayList<>(locations.keySet()));
+    }
+
+    @Test
+    public void locations_ConcurrentReads() throws Exception {
+        var store = ((ZdlLocations) parseZdl("src/test/resources/complete.zdl").getLocations()).store();
+        var expected = new LinkedHashMap<>(new ZdlLocations(() -> store));
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int run = 0; run < 200; run++) {
+                // reading deferred locations builds the store and iterating them materializes the entries
+                var locations = new ZdlLocations(() -> store);
+                var start = new CountDownLatch(1);
+                var readers = new ArrayList<Future<?>>();
+                for (int thread = 0; thread < 4; thread++) {
+                    int reader = thread;
+                    readers.add(pool.submit(() -> {
+                        start.await();
+                        if (reader % 2 == 0) {
+                            assertEquals(List.copyOf(expected.keySet()), List.copyOf(locations.keySet()));
+                        }
+                        for (var path : expected.keySet()) {
+                            assertNotNull(locations.get(path), path);
+                        }
+                        assertEquals(expected.size(), locations.size());
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (var reader : readers) {
+                    reader.get();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String findLocationLinearScan(ZdlModel model, int line, int character) {
+        return model.getLocations().entrySet().stream().filter(k -> {
+            var position = (int[]) k.getValue();
+            return position[2] <= line && line <= position[4] && (line != position[2] || position[3] <= character) && (line != position[4] || character <= position[5]);
+        }).min(Comparator.comparingInt(k -> ((int[]) k.getValue())[1] - ((int[]) k.getValue())[0])).map(Map.Entry::getKey).orElse(null);
+    }
+
 
     @Test
     public void parseZdl_CompleteZdl() throws Exception {
@@ -219,10 +311,101 @@ public class ZdlListenerTest {
 //        System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(model));
     }
 
+    @Test
+    public void parseZdl_WithoutLocations() throws Exception {
+        var zdl = CharStreams.fromFileName("src/test/resources/problems.zdl").toString();
+        ZdlModel withLocations = new ZdlParser().parseModel(zdl);
+        ZdlModel model = new ZdlParser().withLocations(false).parseModel(zdl);
+        assertTrue(model.getLocations().isEmpty());
+        assertEquals(withLocations.getEntities(), model.getEntities());
+        assertEquals(withLocations.get("services"), model.get("services"));
+        var problems = get(model, "$.problems", List.<Map<String, Object>>of());
+        assertEquals(14, problems.size());
+        assertNull(problems.get(0).get("location"));
+    }
+
+    @Test
+    public void parseZdl_TwoStageSameAsLL() throws Exception {
+        for (var fileName : List.of("src/test/resources/complete.zdl", "src/test/resources/unrecognized-tokens.zdl")) {
+            var zdl = CharStreams.fromFileName(fileName).toString();
+            var twoStage = new ZdlParser().withTwoStageParsing(true).parseModel(zdl);
+            var ll = new ZdlParser().withTwoStageParsing(false).parseModel(zdl);
+            assertEquals(mapper.writeValueAsString(ll), mapper.writeValueAsString(twoStage), fileName);
+        }
+    }
+
+    @Test
+    public void parseZdl_RecycledRecognizersAndCache() throws Exception {
+        var zdl = CharStreams.fromFileName("src/test/resources/complete.zdl").toString();
+        var expected = mapper.writeValueAsString(new ZdlParser().parseModel(zdl));
+
+        ZdlRecognizers.clearCache();
+        assertEquals(0, ZdlRecognizers.dfaStateCount());
+        ZdlRecognizers.warmUp(zdl);
+        int warmStates = ZdlRecognizers.dfaStateCount();
+        assertTrue(warmStates > 0);
+        assertTrue(ZdlRecognizers.predictionContextCount() > 0);
+
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().parseModel(zdl)));
+        assertEquals(warmStates, ZdlRecognizers.dfaStateCount(), "steady state after warm up");
+
+        ZdlRecognizers.clearCache();
+        assertEquals(0, ZdlRecognizers.dfaStateCount());
+        assertEquals(expected, mapper.writeValueAsString(new ZdlParser().parseModel(zdl)));
+    }
+
+    @Test
+    public void parseZdl_GeneratedModel() throws Exception {
+        var zdl = new ZdlSourceGenerator().withEntities(12).withEnums(3).withAggregates(3).withServices(4).generate();
+
+        var syntaxErrors = new ArrayList<String>();
+        var lexer = new ZdlLexer(CharStreams.fromString(zdl));
+        var parser = new io.zenwave360.zdl.antlr.ZdlParser(new CommonTokenStream(lexer));
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                syntaxErrors.add(line + ":" + charPositionInLine + " " + msg);
+            }
+        });
+        parser.zdl();
+        assertEquals(List.of(), syntaxErrors);
+
+        ZdlModel model = new ZdlParser().parseModel(zdl);
+        var problems = get(model, "$.problems[*].value", List.<String>of());
+        assertEquals(11, problems.size());
+        assertTrue(problems.stream().allMatch(value -> value.endsWith("?")), "only optional parameters are reported");
+        assertEquals(3, get(model, "$.enums", Map.of()).size());
+        assertEquals(10, get(model, "$.inputs", Map.of()).size() / 2); // plus one nested input each
+        assertEquals(3, get(model, "$.aggregates", Map.of()).size());
+        assertEquals(5, get(model, "$.services", Map.of()).size()); // plus the legacy service
+        assertEquals(4, get(model, "$.relationships", Map.of()).size());
+        assertEquals(24, get(model, "$.entities", Map.of()).size()); // plus one nested entity each
+        assertEquals(9, get(model, "$.entities.Entity0.fields", Map.of()).size());
+    }
+
+    @Test
+    public void parseZdl_ParallelSameAsSequential() throws Exception {
+        var zdl = new ZdlSourceGenerator().withEntities(100).withAggregates(0).generate();
+        var chunks = ZdlParallelParser.split(ZdlRecognizers.tokenize(CharStreams.fromString(zdl)), ZdlParallelParser.MIN_CHUNK_TOKENS);
+        assertTrue(chunks.size() > 4);
+
+        var sequential = new ZdlParser().parseModel(zdl);
+        var parallel = new ZdlParser().withParallelParsing(true).parseModel(zdl);
+        assertEquals(mapper.writeValueAsString(sequential), mapper.writeValueAsString(parallel));
+
+        // small sources and sources with syntax errors are parsed sequentially
+        assertNull(ZdlParallelParser.parse(CharStreams.fromFileName("src/test/resources/complete.zdl"), ZdlListenerImpl::new, ForkJoinPool.commonPool()));
+        assertNull(ZdlParallelParser.parse(CharStreams.fromString(zdl + "entity Broken {"), ZdlListenerImpl::new, ForkJoinPool.commonPool()));
+    }
+
     @Test
     public void parseZdl_Policies() throws Exception {
 
         ZdlModel model = parseZdl("src/test/resources/policies.zdl");
+        assertEquals("this is the body of the policy 2", get(model, "$.policies.somename_2.value"));
+
+        model = new ZdlParser().parseModel("policies (CustomerOrder) { somename \"policy body\" }");
+        assertEquals("CustomerOrder", get(model, "$.policies.somename.aggregate"));
 
 //        System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(model));
     }
@@ -251,6 +434,172 @@ public class ZdlListenerTest {
 //        System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(model));
     }
 
+    @Test
+    public void parseZdl_EscapesAndJavadoc() throws Exception {
+        var model = new ZdlParser().parseModel("""
+                /** Global */
+                config {
+                    title "a \\"quoted\\" \\\\ \\/ \\t\\n 'b'"
+                    basePackage 'it\\'s \\"c\\"'
+                }
+                /**
+                 * Customer entity.
+                 * Second line.
+                 */
+                entity Customer {
+                    /**Name*/ name String
+                    email String /**   * suffix  */
+                    /***/ phone String
+                }
+                """);
+        assertEquals("Global", get(model, "$.javadoc"));
+        assertEquals("a \"quoted\" \\ / \t\n 'b'", get(model, "$.config.title"));
+        assertEquals("it's \"c\"", get(model, "$.config.basePackage"));
+        assertEquals("Customer entity.\n * Second line.", get(model, "$.entities.Customer.javadoc"));
+        assertEquals("Name", get(model, "$.entities.Customer.fields.name.javadoc"));
+        assertEquals("suffix", get(model, "$.entities.Customer.fields.email.javadoc"));
+        assertEquals("", get(model, "$.entities.Customer.fields.phone.javadoc"));
+    }
+
+    @Test
+    public void parseZdl_LazyJavadocSameAsEager() throws Exception {
+        var zdl = Files.readString(Path.of("src/test/resources/complete.zdl"));
+        var eager = new ZdlParser().parseModel(zdl);
+        var lazy = new ZdlParser().withLazyJavadoc(true).parseModel(zdl);
+        var javadoc = get(lazy, "$.entities.CustomerOrder.fields.orderTime.javadoc");
+        assertTrue(javadoc instanceof ZdlJavadoc, String.valueOf(javadoc.getClass()));
+        assertEquals("orderTime javadoc", javadoc.toString());
+        assertSame(javadoc, get(lazy, "$.entities.CustomerOrder.fields.orderTime.comment"));
+        var writer = new ZdlModelJsonWriter();
+        assertEquals(writer.toJson(eager), writer.toJson(lazy));
+        assertEquals(writer.toJson(eager), writer.toJson(ZdlModelCodec.decode(ZdlModelCodec.encode(lazy))));
+    }
+
+    @Test
+    public void typedModel_FromCompleteZdl() throws Exception {
+        var model = new ZdlParser().withLazyJavadoc(true).parseModel(Files.readString(Path.of("src/test/resources/complete.zdl")));
+        var typed = model.typed();
+
+        var customerOrder = typed.getEntities().get("CustomerOrder");
+        assertEquals(List.copyOf(get(model, "$.entities.CustomerOrder.fields", Map.<String, Object>of()).keySet()), List.copyOf(customerOrder.fields().keySet()));
+        var orderTime = customerOrder.fields().get("orderTime");
+        assertEquals("Instant", orderTime.type());
+        assertSame(get(model, "$.entities.CustomerOrder.fields.orderTime.javadoc"), orderTime.javadoc());
+        assertEquals("orderTime javadoc", orderTime.javadoc().toString());
+        assertTrue(orderTime.validations().containsKey("required"));
+        var orderItems = customerOrder.fields().get("orderItems");
+        assertTrue(orderItems.isArray());
+        assertEquals("200", orderItems.validations().get("maxlength"));
+        assertEquals("OrderItem", typed.getFieldType(orderItems).orElseThrow().name());
+        assertEquals("OrderStatus", typed.getFieldEnum(customerOrder.fields().get("status")).orElseThrow().name());
+        assertTrue(typed.getEnums().get("EnumWithValue").hasValue());
+        assertEquals("1", typed.getEnums().get("EnumWithValue").values().get("VALUE1").value());
+
+        assertEquals("CustomerOrderAggregate", typed.getAggregate("CustomerOrder").orElseThrow().name());
+        assertEquals(List.of("OrdersService", "OrdersService2"), typed.getServices("CustomerOrder").stream().map(ZdlTypedModel.Service::name).toList());
+        var searchOrders = typed.getServices().get("OrdersService").methods().get("searchOrders");
+        assertTrue(searchOrders.returnTypeIsArray());
+        assertTrue(searchOrders.parameterIsOptional());
+        assertEquals(get(model, "$.services.OrdersService.methods.searchOrders.options.post"), searchOrders.options().get("post"));
+        assertEquals(typed.getRelationships().stream().filter(r -> r.from().equals("Address") || r.to().equals("Address")).toList(), typed.getRelationships("Address"));
+        assertFalse(typed.getRelationships("Address").isEmpty());
+        assertTrue(typed.getType("CustomerOrderOutput").isPresent());
+
+        assertThrows(UnsupportedOperationException.class, () -> typed.getEntities().remove("CustomerOrder"));
+        assertThrows(UnsupportedOperationException.class, () -> customerOrder.fields().clear());
+        assertThrows(UnsupportedOperationException.class, () -> typed.getRelationships("Address").clear());
+
+        // relationships recovered from syntax errors may miss one end
+        var recovered = new ZdlParser().parseModel("entity A { name String }\nrelationship OneToMany { A to }").typed();
+        assertNull(recovered.getRelationships().get(0).to());
+        assertEquals(recovered.getRelationships(), recovered.getRelationships("A"));
+    }
+
+    @Test
+    public void compactMap_SameAsLinkedHashMap() {
+        var random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            var compact = new CompactMap(random.nextInt(4));
+            var expected = new LinkedHashMap<String, Object>();
+            for (int i = 0; i < 60; i++) {
+                var key = "key" + random.nextInt(20);
+                var value = random.nextInt(4) == 0 ? null : random.nextInt(3);
+                var operation = random.nextInt(12);
+                switch (operation) {
+                    case 0, 1, 2 -> assertEquals(expected.put(key, value), compact.put(key, value));
+                    case 3 -> assertEquals(expected.remove(key), compact.remove(key));
+                    case 4 -> assertEquals(expected.putIfAbsent(key, value), compact.putIfAbsent(key, value));
+                    case 5 -> assertEquals(expected.replace(key, value), compact.replace(key, value));
+                    case 6 -> assertEquals(expected.remove(key, value), compact.remove(key, value));
+                    case 7 -> assertEquals(expected.keySet().removeAll(List.of(key, "key1")), compact.keySet().removeAll(List.of(key, "key1")));
+                    case 8 -> assertEquals(expected.values().removeIf(v -> Objects.equals(v, value)), compact.values().removeIf(v -> Objects.equals(v, value)));
+                    case 9 -> {
+                        expected.entrySet().forEach(entry -> entry.setValue(entry.getKey().length()));
+                        compact.entrySet().forEach(entry -> entry.setValue(entry.getKey().length()));
+                    }
+                    case 10 -> assertEquals(expected.computeIfAbsent(key, k -> value), compact.computeIfAbsent(key, k -> value));
+                    default -> {
+                        if (random.nextInt(8) == 0) {
+                            expected.clear();
+                            compact.clear();
+                        }
+                    }
+                }
+                assertEquals(expected.size(), compact.size());
+                assertEquals(expected.get(key), compact.get(key));
+                assertEquals(expected.containsKey(key), compact.containsKey(key));
+                assertEquals(List.copyOf(expected.entrySet()), List.copyOf(compact.entrySet()));
+                assertEquals(expected, compact);
+                assertEquals(compact, expected);
+                assertEquals(expected.hashCode(), compact.hashCode());
+                assertEquals(expected.toString(), compact.toString());
+            }
+        }
+        // views taken before the map outgrows the compact storage
+        var growing = new CompactMap(2);
+        var expected = new LinkedHashMap<String, Object>();
+        var keys = growing.keySet();
+        var values = growing.values();
+        var entries = growing.entrySet();
+        for (int i = 0; i <= CompactMap.MAX_SIZE; i++) {
+            growing.put("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(keys));
+        assertEquals(List.copyOf(expected.values()), List.copyOf(values));
+        assertEquals(List.copyOf(expected.entrySet()), List.copyOf(entries));
+        keys.remove("key0");
+        values.removeIf(value -> value.equals(1));
+        entries.removeIf(entry -> entry.getKey().equals("key2"));
+        assertEquals(CompactMap.MAX_SIZE - 2, growing.size());
+        assertFalse(growing.containsKey("key1"));
+
+        var map = new CompactMap().with("a", 1).with("b", 2);
+        assertThrows(ConcurrentModificationException.class, () -> map.forEach((key, value) -> map.put(key + key, value)));
+        assertThrows(ConcurrentModificationException.class, () -> map.keySet().forEach(key -> map.remove("a")));
+    }
+
+    @Test
+    public void parseZdl_FromPathAndReader() throws Exception {
+        var writer = new ZdlModelJsonWriter();
+        try (var files = Files.list(Path.of("src/test/resources"))) {
+            for (var file : files.filter(f -> f.toString().endsWith(".zdl")).sorted().toList()) {
+                var expected = writer.toJson(new ZdlParser().parseModel(Files.readString(file)));
+                assertEquals(expected, writer.toJson(new ZdlParser().parseModel(file)), file.toString());
+                try (var reader = Files.newBufferedReader(file)) {
+                    assertEquals(expected, writer.toJson(new ZdlParser().parseModel(reader)), file.toString());
+                }
+
+                // hidden tokens are not buffered, but the tree is the same as parsing with all of them
+                var zdl = CharStreams.fromPath(file);
+                var parser = new io.zenwave360.zdl.antlr.ZdlParser(new CommonTokenStream(new ZdlLexer(zdl)));
+                parser.removeErrorListeners();
+                var tree = parser.zdl().toStringTree(parser);
+                zdl.seek(0);
+                assertEquals(tree, ZdlRecognizers.parse(zdl, true).toStringTree(parser), file.toString());
+            }
+        }
+    }
 
     private static ZdlModel parseZdl(String fileName) throws IOException {
         CharStream zdl = CharStreams.fromFileName(fileName);
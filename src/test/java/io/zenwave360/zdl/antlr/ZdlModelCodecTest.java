@@ -0,0 +1,94 @@
+package io.zenwave360.zdl.antlr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zenwave360.zdl.ZdlParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static io.zenwave360.zdl.antlr.JSONPath.get;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZdlModelCodecTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void roundTrip() throws Exception {
+        for (var fileName : List.of("src/test/resources/complete.zdl", "src/test/resources/problems.zdl", "src/test/resources/nested-input-output-model.zdl")) {
+            ZdlModel model = parseZdl(fileName);
+            var json = mapper.writeValueAsString(model);
+            var bytes = ZdlModelCodec.encode(model);
+            assertTrue(bytes.length * 3 < json.length(), fileName);
+
+            ZdlModel decoded = ZdlModelCodec.decode(bytes);
+            assertEquals(json, mapper.writeValueAsString(decoded), fileName);
+            assertEquals(model.getLocation(20, 10), decoded.getLocation(20, 10));
+        }
+
+        ZdlModel decoded = ZdlModelCodec.decode(ZdlModelCodec.encode(parseZdl("src/test/resources/complete.zdl")));
+        assertSame(decoded.getEntities().get("CustomerOrder"), get(decoded, "$.allEntitiesAndEnums.CustomerOrder"));
+        assertTrue(decoded.getLocations() instanceof ZdlLocations);
+        assertThrows(IOException.class, () -> ZdlModelCodec.decode("{}".getBytes()));
+    }
+
+    @Test
+    public void withoutLocations() throws Exception {
+        var model = new ZdlParser().withLocations(false).parseModel(CharStreams.fromFileName("src/test/resources/problems.zdl").toString());
+        ZdlModel decoded = ZdlModelCodec.decode(ZdlModelCodec.encode(model));
+        // problems without locations are still reported when validating the decoded model again
+        decoded.clearProblems();
+        new ZdlModelValidator().validate(decoded);
+        assertEquals(model.getProblems().size(), decoded.getProblems().size());
+    }
+
+    @Test
+    public void corruptedContent() throws Exception {
+        var bytes = ZdlModelCodec.encode(parseZdl("src/test/resources/nested-input-output-model.zdl"));
+        for (int length = 0; length < bytes.length; length++) {
+            var truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> ZdlModelCodec.decode(truncated), "truncated at " + length);
+        }
+        // flipped bits may still decode to some model, but never fail with anything else than an IOException
+        var random = new Random(42);
+        for (int i = 0; i < bytes.length * 2; i++) {
+            var corrupted = bytes.clone();
+            corrupted[i / 2] ^= (byte) (1 << random.nextInt(8));
+            try {
+                ZdlModelCodec.decode(corrupted);
+            } catch (IOException e) {
+                // expected
+            }
+            corrupted[random.nextInt(bytes.length)] = (byte) random.nextInt();
+            try {
+                ZdlModelCodec.decode(corrupted);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        // deeply nested lists, which can't be read recursively
+        var nested = new ByteArrayOutputStream();
+        nested.write(Arrays.copyOf(bytes, 6)); // magic, version and flags
+        nested.write(new byte[] {1, 3, 1, 'a'}); // one entry with key "a"
+        for (int i = 0; i < 100_000; i++) {
+            nested.write(new byte[] {10, 1}); // list with one element
+        }
+        nested.write(0);
+        assertThrows(IOException.class, () -> ZdlModelCodec.decode(nested.toByteArray()));
+    }
+
+    private static ZdlModel parseZdl(String fileName) throws IOException {
+        CharStream zdl = CharStreams.fromFileName(fileName);
+        return new ZdlParser().parseModel(zdl.toString());
+    }
+}
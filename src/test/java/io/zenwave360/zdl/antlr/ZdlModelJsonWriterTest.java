@@ -0,0 +1,63 @@
+package io.zenwave360.zdl.antlr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zenwave360.zdl.ZdlParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ZdlModelJsonWriterTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void sameAsJackson() throws Exception {
+        var models = new ArrayList<ZdlModel>();
+        try (var files = Files.list(Path.of("src/test/resources"))) {
+            for (var file : files.filter(file -> file.toString().endsWith(".zdl")).sorted().toList()) {
+                models.add(parseZdl(file.toString()));
+            }
+        }
+        models.add(new ZdlParser().parseModel(ZdlSourceGenerator.ofDeclarations(100).generate()));
+        models.add(new ZdlParser().withLocations(false).parseModel(ZdlSourceGenerator.ofDeclarations(100).generate()));
+
+        var writer = new ZdlModelJsonWriter();
+        var prettyWriter = new ZdlModelJsonWriter().withPrettyPrint(true);
+        for (var model : models) {
+            assertEquals(mapper.writeValueAsString(model), writer.toJson(model));
+            assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(model), prettyWriter.toJson(model));
+        }
+
+        // non ASCII chars are encoded as UTF-8 when writing to a stream
+        var unicode = new ZdlParser().parseModel("/** \u00FC\u20AC\uD83D\uDE00 \"quoted\"\t */\nentity A { name String }");
+        var bytes = new ByteArrayOutputStream();
+        writer.write(unicode, bytes);
+        assertArrayEquals(mapper.writeValueAsBytes(unicode), bytes.toByteArray());
+
+        var model = models.get(0);
+        var out = new ByteArrayOutputStream();
+        new ZdlModelJsonWriter().withLocations(false).withProblems(false).withAllEntitiesAndEnums(false).write(model, out);
+        var json = mapper.readValue(out.toByteArray(), Map.class);
+        assertFalse(json.containsKey("locations"));
+        assertFalse(json.containsKey("problems"));
+        assertFalse(json.containsKey("allEntitiesAndEnums"));
+        assertEquals(mapper.readValue(mapper.writeValueAsString(model.getEntities()), Map.class), json.get("entities"));
+    }
+
+
+    private static ZdlModel parseZdl(String fileName) throws IOException {
+        CharStream zdl = CharStreams.fromFileName(fileName);
+        return new ZdlParser().parseModel(zdl.toString());
+    }
+}
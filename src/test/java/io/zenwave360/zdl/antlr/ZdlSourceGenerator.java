@@ -0,0 +1,385 @@
+package io.zenwave360.zdl.antlr;
+
+import java.util.List;
+
+/**
+ * Generates valid, deterministic ZDL sources of any size for scale tests and benchmarks.
+ * <p>
+ * Output covers every construct in <code>Zdl.g4</code>: legacy constants, imports, config (with every kind of value and
+ * plugins), apis, policies, annotations, entities (table names, initial values, all validations, suffix javadoc and
+ * nested fields), enums, inputs, outputs, events, all relationship types, aggregates with commands, services with
+ * <code>withEvents</code> and legacy services.
+ * <p>
+ * Every declaration is numbered after the entity it belongs to (<code>Entity3</code>, <code>Entity3Input</code>,
+ * <code>Entity3Aggregate</code>...) so all references resolve. The only problems reported by the validator are for
+ * optional command/method parameters (like <code>Entity3Input?</code>), which it doesn't recognize yet.
+ */
+public class ZdlSourceGenerator {
+
+    private static final List<String> FIELD_TYPES = List.of("String", "Integer", "Long", "BigDecimal", "Boolean", "LocalDate", "Instant", "UUID", "String[]");
+
+    private int entities = 10;
+    private int fieldsPerEntity = 8;
+    private int nestedFieldsPerEntity = 1;
+    private int enums = 4;
+    private int inputs = 10;
+    private int outputs = 10;
+    private int events = 10;
+    private int relationships = 8;
+    private int aggregates = 2;
+    private int services = 2;
+    private boolean javadoc = true;
+
+    /**
+     * Spreads the given number of top level declarations across all kinds of declarations.
+     */
+    public static ZdlSourceGenerator ofDeclarations(int declarations) {
+        int entities = Math.max(1, declarations / 8);
+        int aggregates = Math.max(1, declarations / 16);
+        return new ZdlSourceGenerator()
+                .withEntities(entities)
+                .withEnums(entities)
+                .withInputs(entities)
+                .withOutputs(entities)
+                .withEvents(entities)
+                .withRelationships(entities)
+                .withAggregates(aggregates)
+                .withServices(aggregates);
+    }
+
+    public ZdlSourceGenerator withEntities(int entities) {
+        this.entities = Math.max(1, entities);
+        return this;
+    }
+
+    public ZdlSourceGenerator withFieldsPerEntity(int fieldsPerEntity) {
+        this.fieldsPerEntity = fieldsPerEntity;
+        return this;
+    }
+
+    public ZdlSourceGenerator withNestedFieldsPerEntity(int nestedFieldsPerEntity) {
+        this.nestedFieldsPerEntity = nestedFieldsPerEntity;
+        return this;
+    }
+
+    public ZdlSourceGenerator withEnums(int enums) {
+        this.enums = Math.max(1, enums);
+        return this;
+    }
+
+    public ZdlSourceGenerator withInputs(int inputs) {
+        this.inputs = inputs;
+        return this;
+    }
+
+    public ZdlSourceGenerator withOutputs(int outputs) {
+        this.outputs = outputs;
+        return this;
+    }
+
+    public ZdlSourceGenerator withEvents(int events) {
+        this.events = events;
+        return this;
+    }
+
+    public ZdlSourceGenerator withRelationships(int relationships) {
+        this.relationships = relationships;
+        return this;
+    }
+
+    public ZdlSourceGenerator withAggregates(int aggregates) {
+        this.aggregates = aggregates;
+        return this;
+    }
+
+    public ZdlSourceGenerator withServices(int services) {
+        this.services = services;
+        return this;
+    }
+
+    public ZdlSourceGenerator withJavadoc(boolean javadoc) {
+        this.javadoc = javadoc;
+        return this;
+    }
+
+    /**
+     * Aggregates are numbered after the entity they wrap, so their count is capped by the number of entities, and so are
+     * inputs, outputs and events.
+     */
+    private int aggregates() {
+        return Math.min(aggregates, entities);
+    }
+
+    /**
+     * Services are declared for aggregates, so there are none without aggregates.
+     */
+    private int services() {
+        return aggregates() == 0 ? 0 : services;
+    }
+
+    public String generate() {
+        var zdl = new StringBuilder(1024 + 1024 * entities);
+        header(zdl);
+        for (int i = 0; i < enums; i++) {
+            enum_(zdl, i);
+        }
+        for (int i = 0; i < entities; i++) {
+            entity(zdl, i);
+        }
+        for (int i = 0; i < Math.min(inputs, entities); i++) {
+            fieldsDeclaration(zdl, "input", "Entity" + i + "Input", i);
+        }
+        for (int i = 0; i < Math.min(outputs, entities); i++) {
+            fieldsDeclaration(zdl, "output", "Entity" + i + "Output", i);
+        }
+        for (int i = 0; i < Math.min(events, entities); i++) {
+            event(zdl, i);
+        }
+        relationships(zdl);
+        for (int i = 0; i < aggregates(); i++) {
+            aggregate(zdl, i);
+        }
+        for (int i = 0; i < services(); i++) {
+            service(zdl, i);
+        }
+        if (aggregates() > 0) {
+            zdl.append("service Entity0 with LegacyService\n");
+        }
+        return zdl.toString();
+    }
+
+    private void header(StringBuilder zdl) {
+        zdl.append("""
+                MAX_LENGTH = 100
+                MIN_LENGTH=1
+
+                @import("com.example:artifact:RELEASE")
+                @import(models: 'com.example:models:1.0')
+
+                /**
+                 * Generated model.
+                 */
+                config {
+                    title "Generated Model"
+                    basePackage "io.example.generated"
+                    persistence jpa
+                    maxResults 100
+                    ratio 1.5
+                    enabled true
+                    disabled false
+                    nothing null
+                    profiles dev, test, prod
+                    labels ["a", 'b', c]
+                    settings {key: "value", numbers: [1, 2, 3], nested: {enabled: true}}
+                    headers accept: "application/json", charset: 'utf-8'
+
+                    plugins {
+                        /** first plugin */
+                        FirstPlugin {
+                            targetFolder "target/generated"
+                            --force
+                            --threads=4
+                        }
+                        disabled SecondPlugin (inherit false) {
+                            option value
+                        }
+                        "QuotedPlugin" (inherit true) {
+                        }
+                    }
+                }
+
+                apis {
+                    /** provider api */
+                    @default
+                    asyncapi(provider) default {
+                        uri "src/main/resources/apis/asyncapi.yml"
+                    }
+                    openapi(client) ClientApi {
+                        uri "src/main/resources/apis/openapi.yml"
+                    }
+                }
+
+                policies {
+                    policy_1 "policy body"
+                    policy-2 'policy body'
+                }
+
+                """);
+        if (aggregates() > 0) {
+            zdl.append("policies(Entity0Aggregate) {\n    aggregate_policy \"policy body\"\n}\n\n");
+        }
+    }
+
+    private void javadoc(StringBuilder zdl, String indent, String text) {
+        if (javadoc) {
+            zdl.append(indent).append("/**\n").append(indent).append(" * ").append(text).append("\n").append(indent).append(" */\n");
+        }
+    }
+
+    private void suffixJavadoc(StringBuilder zdl, String text) {
+        if (javadoc) {
+            zdl.append(" /** ").append(text).append(" */");
+        }
+    }
+
+    private void enum_(StringBuilder zdl, int i) {
+        javadoc(zdl, "", "Enum" + i + " javadoc");
+        if (i % 2 == 1) {
+            zdl.append("@input\n");
+        }
+        zdl.append("enum Enum").append(i).append(" {\n");
+        javadoc(zdl, "    ", "VALUE_A javadoc");
+        zdl.append("    VALUE_A(1),");
+        suffixJavadoc(zdl, "VALUE_A suffix javadoc");
+        zdl.append("\n    VALUE_B(2), VALUE_C\n}\n\n");
+    }
+
+    private void entity(StringBuilder zdl, int i) {
+        javadoc(zdl, "", "Entity" + i + " javadoc");
+        if (i < aggregates()) {
+            zdl.append("@aggregate\n");
+        }
+        zdl.append("@auditing @meta({owner: \"team").append(i % 4).append("\", tags: [a, b]})\n");
+        zdl.append("entity Entity").append(i).append(" (entity_").append(i).append(") {\n");
+        fields(zdl, i, "    ");
+        for (int n = 0; n < nestedFieldsPerEntity; n++) {
+            javadoc(zdl, "    ", "nested field javadoc");
+            zdl.append("    @ref\n    details").append(n).append(" Entity").append(i).append("Details").append(n)
+                    .append(" (entity_").append(i).append("_details_").append(n).append(") required {\n")
+                    .append("        street String required\n")
+                    .append("        city String maxlength(100)\n")
+                    .append("        zip String\n")
+                    .append("    } minlength(1) maxlength(3)\n");
+        }
+        zdl.append("}\n\n");
+    }
+
+    private void fields(StringBuilder zdl, int i, String indent) {
+        for (int f = 0; f < fieldsPerEntity; f++) {
+            if (f % 4 == 1) {
+                javadoc(zdl, indent, "field" + f + " javadoc");
+            }
+            zdl.append(indent);
+            if (f % 5 == 2) {
+                zdl.append("@transient ");
+            }
+            zdl.append("field").append(f).append(' ');
+            switch (f % 12) {
+                case 0 -> zdl.append("String required unique minlength(1) maxlength(255)");
+                case 1 -> zdl.append("Integer min(0) max(100)");
+                case 2 -> zdl.append("String pattern(/^[a-z]+$/)");
+                case 3 -> zdl.append("String required email");
+                case 4 -> zdl.append("Enum").append((i + f) % enums).append(" = Enum").append((i + f) % enums).append(".VALUE_A");
+                case 5 -> zdl.append("Boolean = true");
+                case 6 -> zdl.append("Integer = 10 required");
+                case 7 -> zdl.append("String = \"default\"");
+                case 8 -> zdl.append("Entity").append((i + 1) % entities);
+                case 9 -> zdl.append("Entity").append((i + 1) % entities).append("[]");
+                default -> zdl.append(FIELD_TYPES.get((i + f) % FIELD_TYPES.size()));
+            }
+            if (f % 3 == 2) {
+                suffixJavadoc(zdl, "field" + f + " suffix javadoc");
+            }
+            zdl.append(f % 6 == 5 ? ",\n" : "\n");
+        }
+    }
+
+    private void fieldsDeclaration(StringBuilder zdl, String keyword, String name, int i) {
+        javadoc(zdl, "", name + " javadoc");
+        zdl.append("@copy(Entity").append(i).append(")\n");
+        zdl.append(keyword).append(' ').append(name).append(" {\n");
+        fields(zdl, i, "    ");
+        zdl.append("    nested ").append(name).append("Nested {\n")
+                .append("        value String required /** value suffix javadoc */\n")
+                .append("    }\n");
+        zdl.append("}\n\n");
+    }
+
+    private void event(StringBuilder zdl, int i) {
+        javadoc(zdl, "", "Entity" + i + "Event javadoc");
+        zdl.append("@asyncapi({channel: \"Entity").append(i).append("Channel\", topic: \"entity").append(i).append(".events\"})\n");
+        zdl.append("event Entity").append(i).append("Event {\n");
+        zdl.append("    id String\n    dateTime Instant\n    status Enum").append(i % enums).append('\n');
+        zdl.append("    payload Entity").append(i).append('\n');
+        zdl.append("}\n\n");
+    }
+
+    private static final List<String> RELATIONSHIP_TYPES = List.of("ManyToOne", "OneToMany", "OneToOne", "ManyToMany");
+
+    private int relationshipsBlocks() {
+        return Math.min(relationships, RELATIONSHIP_TYPES.size());
+    }
+
+    private void relationships(StringBuilder zdl) {
+        if (relationships <= 0) {
+            return;
+        }
+        int blocks = relationshipsBlocks();
+        for (int b = 0; b < blocks; b++) {
+            zdl.append("relationship ").append(RELATIONSHIP_TYPES.get(b)).append(" {\n");
+            for (int r = b; r < relationships; r += blocks) {
+                int from = r % entities;
+                int to = (r + 1) % entities;
+                switch (r % 4) {
+                    case 0 -> {
+                        javadoc(zdl, "    ", "relationship javadoc");
+                        zdl.append("    Entity").append(from).append("{rel").append(r).append("} to Entity").append(to).append('\n');
+                    }
+                    case 1 -> zdl.append("    Entity").append(from).append("{rel").append(r).append("(field0) required} to Entity")
+                            .append(to).append("{back").append(r).append("}\n");
+                    case 2 -> zdl.append("    Entity").append(from).append("{rel").append(r)
+                            .append(" required minlength(1) maxlength(3)} to @Id Entity").append(to).append("{back").append(r).append("}\n");
+                    default -> zdl.append("    @ref Entity").append(from).append("{rel").append(r).append("} to /** back javadoc */ Entity")
+                            .append(to).append("{back").append(r).append("(field0)}\n");
+                }
+            }
+            zdl.append("}\n\n");
+        }
+    }
+
+    private void aggregate(StringBuilder zdl, int i) {
+        var event = events > i ? "Entity" + i + "Event" : null;
+        var input = inputs > i ? "Entity" + i + "Input" : "Entity" + i;
+        javadoc(zdl, "", "Entity" + i + "Aggregate javadoc");
+        zdl.append("@command\naggregate Entity").append(i).append("Aggregate (Entity").append(i).append(") {\n");
+        javadoc(zdl, "    ", "create command javadoc");
+        zdl.append("    @create\n    create(").append(input).append(')');
+        if (event != null) {
+            zdl.append(" withEvents ").append(event);
+        }
+        suffixJavadoc(zdl, "create suffix javadoc");
+        zdl.append("\n    update(").append(input).append("?)");
+        if (event != null) {
+            zdl.append(" withEvents [").append(event).append('|').append(event).append("] ").append(event);
+        }
+        zdl.append("\n    delete()\n}\n\n");
+    }
+
+    private void service(StringBuilder zdl, int i) {
+        int aggregate = i % aggregates();
+        var event = events > aggregate ? "Entity" + aggregate + "Event" : null;
+        var withEvents = event != null ? " withEvents " + event : "";
+        var withEventsOr = event != null ? " withEvents [" + event + "|" + event + "] " + event : "";
+        var input = inputs > aggregate ? "Entity" + aggregate + "Input" : "Entity" + aggregate;
+        var output = outputs > aggregate ? "Entity" + aggregate + "Output" : "Entity" + aggregate;
+        var entity = "Entity" + aggregate;
+        var aggregates = i % 2 == 0 ? entity + "Aggregate" : entity + "Aggregate, " + entity;
+        javadoc(zdl, "", "Entity" + i + "Service javadoc");
+        zdl.append("@rest(\"/entity").append(i).append("\")\n");
+        zdl.append("service Entity").append(i).append("Service for (").append(aggregates).append(") {\n");
+        javadoc(zdl, "    ", "get javadoc");
+        zdl.append("    @get(\"/{id}\")\n    get").append(i).append("(id) ").append(entity).append("?\n");
+        zdl.append("    @post\n    create").append(i).append('(').append(input).append(") ").append(entity).append(withEvents);
+        suffixJavadoc(zdl, "create suffix javadoc");
+        zdl.append('\n');
+        zdl.append("    @put(\"/{id}\")\n    update").append(i).append("(id, ").append(input).append(") ").append(entity).append(withEventsOr).append('\n');
+        zdl.append("    patch").append(i).append("(id?, ").append(input).append("?) ").append(output).append('\n');
+        zdl.append("    getByNaturalId").append(i).append("(@natural id) ").append(output).append('\n');
+        zdl.append("    @asyncapi({api: ClientApi, channel: \"Entity").append(i).append("Channel\"})\n");
+        zdl.append("    onEvent").append(i).append('(').append(input).append(')').append(withEvents).append('\n');
+        zdl.append("    @post({path: \"/search\", params: {page: Integer, size: Integer}})\n");
+        zdl.append("    search").append(i).append('(').append(input).append("?) ").append(entity).append("[]\n");
+        zdl.append("    delete").append(i).append("(id)\n");
+        zdl.append("}\n\n");
+    }
+}